@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver;
+
+import java.util.zip.Deflater;
+
+/**
+ * Represents a set of options for how gziped responses are compressed.
+ * <br>
+ * Responses are only compressed if the client accepts gzip, the response is at least {@link #threshold} bytes, and the response content type is not already compressed.
+ *
+ * @see SimpleHttpServer#setCompressionOptions(CompressionOptions)
+ * @see SimpleHttpExchange#send(byte[], int, boolean)
+ * @since 5.1.0
+ * @version 5.1.0
+ * @author Katsute
+ */
+public class CompressionOptions {
+
+    /**
+     * Creates a new set of compression options.
+     *
+     * @since 5.1.0
+     */
+    public CompressionOptions(){ }
+
+    CompressionOptions(final CompressionOptions options){
+        this.threshold  = options.threshold;
+        this.level      = options.level;
+        this.bufferSize = options.bufferSize;
+    }
+
+    /**
+     * Minimum response size in bytes to compress. Smaller responses are sent uncompressed.
+     *
+     * @since 5.1.0
+     */
+    public int threshold = 1024;
+
+    /**
+     * Compression level from 0 to 9, or -1 for the default level.
+     *
+     * @see Deflater
+     * @since 5.1.0
+     */
+    public int level = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Buffer size in bytes used when compressing.
+     *
+     * @since 5.1.0
+     */
+    public int bufferSize = 8 * 1024;
+
+    @Override
+    public String toString(){
+        return "CompressionOptions{" +
+               "threshold=" + threshold +
+               ", level=" + level +
+               ", bufferSize=" + bufferSize +
+               '}';
+    }
+
+    //
+
+    /**
+     * Builder used to create {@link CompressionOptions}.
+     *
+     * @see CompressionOptions
+     * @since 5.1.0
+     * @version 5.1.0
+     * @author Katsute
+     */
+    public static class Builder {
+
+        private final CompressionOptions options = new CompressionOptions();
+
+        /**
+         * Sets the compression threshold.
+         *
+         * @param threshold threshold
+         * @return builder
+         *
+         * @see CompressionOptions#threshold
+         * @since 5.1.0
+         */
+        public final Builder setThreshold(final int threshold){
+            options.threshold = threshold;
+            return this;
+        }
+
+        /**
+         * Sets the compression level.
+         *
+         * @param level level
+         * @return builder
+         *
+         * @see CompressionOptions#level
+         * @since 5.1.0
+         */
+        public final Builder setLevel(final int level){
+            options.level = level;
+            return this;
+        }
+
+        /**
+         * Sets the buffer size.
+         *
+         * @param bufferSize buffer size
+         * @return builder
+         *
+         * @see CompressionOptions#bufferSize
+         * @since 5.1.0
+         */
+        public final Builder setBufferSize(final int bufferSize){
+            options.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * Returns the builder as compression options.
+         *
+         * @return compression options
+         *
+         * @see CompressionOptions
+         * @since 5.1.0
+         */
+        public final CompressionOptions build(){
+            return new CompressionOptions(options);
+        }
+
+        @Override
+        public String toString(){
+            return "Builder{" +
+                   "options=" + options +
+                   '}';
+        }
+
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.*;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ * Gzip compression used by {@link SimpleHttpExchange#send(byte[], int, boolean)}, available to handlers that compress responses themselves. Compression uses a shared pool of deflaters.
+ *
+ * @see CompressionOptions
+ * @since 5.1.0
+ * @version 5.1.0
+ * @author Katsute
+ */
+public abstract class CompressionUtility {
+
+    private CompressionUtility(){ }
+
+    static final String ATTRIBUTE = CompressionOptions.class.getName(); // context attribute set by server
+
+    static final CompressionOptions defaultOptions = new CompressionOptions();
+
+    // content types that are already compressed
+    private static final String[] compressedTypes = {
+        "image/", "video/", "audio/", "font/woff",
+        "application/zip", "application/gzip", "application/x-gzip", "application/x-bzip2", "application/x-7z-compressed", "application/x-rar-compressed", "application/pdf", "application/octet-stream"
+    };
+
+    /**
+     * Returns the compression options for an exchange, set by {@link SimpleHttpServer#setCompressionOptions(CompressionOptions)}.
+     *
+     * @param exchange http exchange
+     * @return compression options
+     *
+     * @see CompressionOptions
+     * @since 5.1.0
+     */
+    public static CompressionOptions getCompressionOptions(final HttpExchange exchange){
+        final Object options = exchange.getHttpContext().getAttributes().get(ATTRIBUTE);
+        return options instanceof CompressionOptions ? (CompressionOptions) options : defaultOptions;
+    }
+
+    static boolean acceptsGzip(final Headers request){
+        return acceptsEncoding(request, "gzip");
+    }
+
+    /**
+     * Returns if the request accepts a content encoding, using the <code>Accept-Encoding</code> header and its quality values.
+     *
+     * @param request request headers
+     * @param encoding content encoding, like <code>gzip</code>
+     * @return if the encoding is accepted
+     *
+     * @since 5.1.0
+     */
+    public static boolean acceptsEncoding(final Headers request, final String encoding){
+        final String header = request.getFirst("Accept-Encoding");
+        if(header == null) return false;
+        boolean wildcard = false;
+        for(final String token : header.split(",")){
+            final String[] params = token.split(";");
+            final String name = params[0].trim();
+            double q = 1;
+            for(int i = 1; i < params.length; i++){
+                final String param = params[i].trim();
+                if(param.startsWith("q="))
+                    try{
+                        q = Double.parseDouble(param.substring(2));
+                    }catch(final NumberFormatException ignored){ }
+            }
+            if(name.equalsIgnoreCase(encoding))
+                return q > 0;
+            else if(name.equals("*"))
+                wildcard = q > 0;
+        }
+        return wildcard;
+    }
+
+    static boolean isCompressible(final Headers response){
+        return !response.containsKey("Content-Encoding") && isCompressible(response.getFirst("Content-Type")); // not already encoded
+    }
+
+    /**
+     * Returns if a content type is worth compressing. Images, video, audio, and archives are already compressed.
+     *
+     * @param type content type, or null if unknown
+     * @return if compressible
+     *
+     * @since 5.1.0
+     */
+    public static boolean isCompressible(final String type){
+        if(type != null){
+            final String t = type.toLowerCase();
+            for(final String compressed : compressedTypes)
+                if(t.startsWith(compressed))
+                    return false;
+        }
+        return true;
+    }
+
+    // deflater pool
+
+    private static final int poolSize = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final Map<Integer,Queue<Deflater>> pool = new ConcurrentHashMap<>();
+
+    private static Deflater acquire(final int level){
+        final Deflater deflater = pool.computeIfAbsent(level, k -> new ArrayBlockingQueue<>(poolSize)).poll();
+        return deflater != null ? deflater : new Deflater(level, true);
+    }
+
+    private static void release(final int level, final Deflater deflater){
+        deflater.reset();
+        if(!pool.get(level).offer(deflater)) // pool is full
+            deflater.end();
+    }
+
+    /**
+     * Compresses bytes with gzip.
+     *
+     * @param bytes bytes
+     * @param options compression options, only the level and buffer size are used
+     * @return compressed bytes
+     *
+     * @see CompressionOptions
+     * @since 5.1.0
+     */
+    public static byte[] gzip(final byte[] bytes, final CompressionOptions options){
+        final ByteArrayOutputStream OUT = new ByteArrayOutputStream(Math.max(32, bytes.length / 2));
+        try(final GzipOutputStream GZIP = new GzipOutputStream(OUT, options)){
+            GZIP.write(bytes);
+        }catch(final IOException e){ // not thrown by a byte array stream
+            throw new UncheckedIOException(e);
+        }
+        return OUT.toByteArray();
+    }
+
+    /**
+     * Returns a stream that compresses with gzip. The stream must be closed so the deflater can be reused.
+     *
+     * @param OUT stream to write compressed bytes to
+     * @param options compression options, only the level and buffer size are used
+     * @return gzip stream
+     * @throws IOException IO exception
+     *
+     * @see CompressionOptions
+     * @since 5.1.0
+     */
+    public static OutputStream gzip(final OutputStream OUT, final CompressionOptions options) throws IOException {
+        return new GzipOutputStream(OUT, options);
+    }
+
+    // gzip stream using a pooled deflater, deflater is returned to the pool when the stream is closed
+    static final class GzipOutputStream extends DeflaterOutputStream {
+
+        private static final byte[] header = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+        private final int level;
+        private final CRC32 crc = new CRC32();
+        private boolean finished = false, released = false;
+
+        GzipOutputStream(final OutputStream OUT, final CompressionOptions options) throws IOException {
+            this(OUT, options.level, options.bufferSize);
+        }
+
+        private GzipOutputStream(final OutputStream OUT, final int level, final int bufferSize) throws IOException {
+            super(OUT, acquire(level), Math.max(512, bufferSize));
+            this.level = level;
+            out.write(header);
+        }
+
+        @Override
+        public final synchronized void write(final byte[] b, final int off, final int len) throws IOException {
+            super.write(b, off, len);
+            crc.update(b, off, len);
+        }
+
+        @Override
+        public final void finish() throws IOException {
+            if(finished) return;
+            finished = true;
+            super.finish();
+            final long crc = this.crc.getValue();
+            final long size = def.getBytesRead();
+            out.write(new byte[]{
+                (byte) crc, (byte) (crc >> 8), (byte) (crc >> 16), (byte) (crc >> 24),
+                (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24)
+            });
+        }
+
+        @Override
+        public final void close() throws IOException {
+            try{
+                super.close();
+            }finally{
+                if(!released){
+                    released = true;
+                    release(level, def);
+                }
+            }
+        }
+
+    }
+
+}
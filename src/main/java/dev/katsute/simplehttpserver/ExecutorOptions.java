@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver;
+
+/**
+ * Represents a set of options for the executor that runs a server's handlers.
+ * <br>
+ * On Java 21 or later handlers are run on virtual threads, so blocking handlers do not need a tuned thread pool. On earlier versions, or if {@link #virtual} is false, handlers are run on a bounded pool of threads. In both cases at most {@link #threads} requests are handled at once with up to {@link #queue} waiting requests.
+ * <h2>Load Shedding</h2>
+ * If {@link #shed} is true, requests that do not fit in the queue are answered with <code>503 Service Unavailable</code> and a <code>Retry-After</code> header without running a handler. Requests that waited longer than the {@link #deadline} are answered the same way, since the client has likely given up on them.
+ *
+ * @see ServerExecutor
+ * @see SimpleHttpServer#create(int, int, ExecutorOptions)
+ * @see SimpleHttpsServer#create(int, int, ExecutorOptions)
+ * @since 5.1.0
+ * @version 5.1.0
+ * @author Katsute
+ */
+public class ExecutorOptions {
+
+    /**
+     * Creates a new set of executor options.
+     *
+     * @since 5.1.0
+     */
+    public ExecutorOptions(){ }
+
+    ExecutorOptions(final ExecutorOptions options){
+        this.virtual = options.virtual;
+        this.threads = options.threads;
+        this.queue      = options.queue;
+        this.shed       = options.shed;
+        this.deadline   = options.deadline;
+        this.retryAfter = options.retryAfter;
+    }
+
+    /**
+     * When true, handlers are run on virtual threads if the Java version supports them.
+     *
+     * @since 5.1.0
+     */
+    public boolean virtual = true;
+
+    /**
+     * Maximum amount of requests handled at once. When not using virtual threads this is the amount of threads to run handlers on.
+     *
+     * @since 5.1.0
+     */
+    public int threads = 200;
+
+    /**
+     * Maximum amount of requests waiting to be handled. Requests past this wait on the thread that accepted the connection for room in the queue, which stops new connections from being accepted meanwhile. Requests that do not get room within the {@link #deadline}, or 10 seconds if there is no deadline, are answered with <code>503 Service Unavailable</code>. Handlers are never run on the thread that accepted the connection.
+     *
+     * @since 5.1.0
+     */
+    public int queue = 1000;
+
+    /**
+     * When true, requests that do not fit in the {@link #queue} are answered with <code>503 Service Unavailable</code> right away instead of waiting for room.
+     * <br>
+     * Rejected requests are answered on the thread that accepted the connection, which has to read the request line and headers first. A client that sends its headers slowly holds up that thread for as long as the server's read timeout allows.
+     *
+     * @since 5.1.0
+     */
+    public boolean shed = false;
+
+    /**
+     * How long a request may wait for a thread in milliseconds before it is answered with <code>503 Service Unavailable</code> instead of being handled. If 0 or less, requests wait until handled.
+     *
+     * @since 5.1.0
+     */
+    public long deadline = 0;
+
+    /**
+     * The <code>Retry-After</code> time in seconds sent with <code>503 Service Unavailable</code> responses.
+     *
+     * @since 5.1.0
+     */
+    public int retryAfter = 1;
+
+    @Override
+    public String toString(){
+        return "ExecutorOptions{" +
+               "virtual=" + virtual +
+               ", threads=" + threads +
+               ", queue=" + queue +
+               ", shed=" + shed +
+               ", deadline=" + deadline +
+               ", retryAfter=" + retryAfter +
+               '}';
+    }
+
+    //
+
+    /**
+     * Builder used to create {@link ExecutorOptions}.
+     *
+     * @see ExecutorOptions
+     * @since 5.1.0
+     * @version 5.1.0
+     * @author Katsute
+     */
+    public static class Builder {
+
+        private final ExecutorOptions options = new ExecutorOptions();
+
+        /**
+         * Sets the virtual thread option.
+         *
+         * @param virtual virtual
+         * @return builder
+         *
+         * @see ExecutorOptions#virtual
+         * @since 5.1.0
+         */
+        public final Builder setVirtual(final boolean virtual){
+            options.virtual = virtual;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of threads.
+         *
+         * @param threads threads
+         * @return builder
+         *
+         * @see ExecutorOptions#threads
+         * @since 5.1.0
+         */
+        public final Builder setThreads(final int threads){
+            options.threads = threads;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of waiting requests.
+         *
+         * @param queue queue size
+         * @return builder
+         *
+         * @see ExecutorOptions#queue
+         * @since 5.1.0
+         */
+        public final Builder setQueue(final int queue){
+            options.queue = queue;
+            return this;
+        }
+
+        /**
+         * Sets the load shedding option.
+         *
+         * @param shed shed
+         * @return builder
+         *
+         * @see ExecutorOptions#shed
+         * @since 5.1.0
+         */
+        public final Builder setShed(final boolean shed){
+            options.shed = shed;
+            return this;
+        }
+
+        /**
+         * Sets the queue deadline.
+         *
+         * @param deadline deadline in milliseconds
+         * @return builder
+         *
+         * @see ExecutorOptions#deadline
+         * @since 5.1.0
+         */
+        public final Builder setDeadline(final long deadline){
+            options.deadline = deadline;
+            return this;
+        }
+
+        /**
+         * Sets the retry after time.
+         *
+         * @param retryAfter retry after time in seconds
+         * @return builder
+         *
+         * @see ExecutorOptions#retryAfter
+         * @since 5.1.0
+         */
+        public final Builder setRetryAfter(final int retryAfter){
+            options.retryAfter = retryAfter;
+            return this;
+        }
+
+        /**
+         * Returns the builder as executor options.
+         *
+         * @return executor options
+         *
+         * @see ExecutorOptions
+         * @since 5.1.0
+         */
+        public final ExecutorOptions build(){
+            return new ExecutorOptions(options);
+        }
+
+        @Override
+        public String toString(){
+            return "Builder{" +
+                   "options=" + options +
+                   '}';
+        }
+
+    }
+
+}
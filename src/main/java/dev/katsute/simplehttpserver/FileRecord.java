@@ -18,7 +18,9 @@
 
 package dev.katsute.simplehttpserver;
 
-import java.nio.charset.StandardCharsets;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -28,20 +30,18 @@ import java.util.*;
  * @see Record
  *
  * @since 5.0.0
- * @version 5.0.0
+ * @version 5.1.0
  * @author Katsute
  */
 public class FileRecord extends Record {
 
     final String fileName, contentType;
-    private final byte[] bytes;
 
-    FileRecord(final Map.Entry<String,Map<String,?>> entry){
-        super(entry);
+    FileRecord(final String name, final Map<String,Header> headers, final byte[] bytes, final Path path, final long size){
+        super(name, headers, bytes, path, size);
 
-        fileName    = Objects.requireNonNull(Objects.requireNonNull(getHeader("Content-Disposition").getParameter("filename")));
+        fileName    = Objects.requireNonNull(Objects.requireNonNull(getHeader("Content-Disposition")).getParameter("filename"));
         contentType = Objects.requireNonNull(Objects.requireNonNull(getHeader("Content-Type")).getValue());
-        bytes       = getValue().getBytes(StandardCharsets.UTF_8);
     }
 
     /**
@@ -74,7 +74,44 @@ public class FileRecord extends Record {
      * @since 5.0.0
      */
     public final byte[] getBytes(){
-        return Arrays.copyOf(bytes, bytes.length); // dereference
+        return bytes != null ? Arrays.copyOf(bytes, bytes.length) : readBytes(); // dereference
+    }
+
+    /**
+     * Returns the file content as an input stream. Large files are streamed from disk rather than held in memory.
+     *
+     * @return file input stream
+     * @throws IOException IO exception
+     *
+     * @see #getPath()
+     * @since 5.1.0
+     */
+    public final InputStream getInputStream() throws IOException {
+        return bytes != null ? new ByteArrayInputStream(bytes) : Files.newInputStream(path);
+    }
+
+    /**
+     * Returns the temporary file that the file content was stored at, or null if the file is stored in memory. The file is deleted when the exchange is closed.
+     *
+     * @return file path
+     *
+     * @see #getInputStream()
+     * @see SimpleHttpExchange#getMultipartFormData(long)
+     * @since 5.1.0
+     */
+    public final Path getPath(){
+        return path;
+    }
+
+    /**
+     * Returns the file size in bytes.
+     *
+     * @return file size
+     *
+     * @since 5.1.0
+     */
+    public final long getSize(){
+        return size;
     }
 
     //
@@ -84,7 +121,8 @@ public class FileRecord extends Record {
         return "FileRecord{" +
                "fileName='" + fileName + '\'' +
                ", contentType='" + contentType + '\'' +
-               ", bytes=" + Arrays.toString(bytes) +
+               ", size=" + size +
+               ", path=" + path +
                '}';
     }
 
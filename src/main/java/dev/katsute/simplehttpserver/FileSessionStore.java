@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A session store that persists sessions to a local file, so that sessions are kept when the application restarts.
+ * <br>
+ * Sessions are stored in a hash table in a memory mapped file, so the amount of sessions is not limited by the heap. Only recently used sessions and sessions with attributes are kept in memory, other sessions are read from the file when requested. Accesses are batched and written in the background every flush interval, requests never wait on the disk.
+ * <br>
+ * Only the session ID, creation time, and last accessed time are persisted, session attributes are only kept in memory. Session IDs can be at most 104 bytes. If the file was truncated or is corrupt, damaged sessions are dropped when the store is opened. A file that is not a session store is left unchanged and the store fails to open.
+ *
+ * @see SessionStore
+ * @see MemorySessionStore
+ * @since 5.1.0
+ * @version 5.1.0
+ * @author Katsute
+ */
+public class FileSessionStore implements SessionStore, Closeable {
+
+    private static final int MAGIC = 0x53485353;
+
+    // header: magic, capacity, size
+    // slot: state, id length, creation time, last accessed time, id
+    private static final int HEADER = 64, SLOT = 128, CREATED = 8, ACCESSED = 16, ID = 24, MAX_ID = SLOT - ID;
+    private static final byte EMPTY = 0, USED = 1, DELETED = 2;
+
+    private static final int minCapacity = 1024;
+    private static final int maxCapacity = Integer.highestOneBit((Integer.MAX_VALUE - HEADER) / SLOT);
+
+    private static final long idle = 60 * 1000; // how long unused sessions without attributes are kept in memory
+
+    private final Map<String,HttpSession> sessions = new ConcurrentHashMap<>(); // sessions in memory
+    private final Set<String> recent = ConcurrentHashMap.newKeySet(); // sessions returned since the last flush, these may still be in use
+    private final Map<String,Long> dirty = new ConcurrentHashMap<>(); // last accessed times not yet written
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final File file;
+    private final FileChannel channel;
+    private final ScheduledExecutorService executor;
+
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private volatile int size = 0;
+    private int used = 0; // used and deleted slots
+    private boolean closed = false;
+
+    /**
+     * Creates a session store using a file, changes are written every second.
+     *
+     * @param file file to store sessions in
+     * @throws IOException if the file could not be read or written, or is not a session store
+     *
+     * @since 5.1.0
+     */
+    public FileSessionStore(final File file) throws IOException {
+        this(file, 1000);
+    }
+
+    /**
+     * Creates a session store using a file.
+     *
+     * @param file file to store sessions in
+     * @param interval how often to write changes, in milliseconds
+     * @throws IOException if the file could not be read or written, or is not a session store
+     *
+     * @since 5.1.0
+     */
+    public FileSessionStore(final File file, final long interval) throws IOException {
+        this.file = Objects.requireNonNull(file).getAbsoluteFile();
+
+        channel = FileChannel.open(this.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try{
+            load();
+        }catch(final IOException | RuntimeException e){
+            channel.close();
+            throw e;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "simplehttpserver-session-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try{
+                flush();
+            }catch(final IOException ignored){ }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void load() throws IOException {
+        final long length = channel.size();
+        if(length == 0){ // new file
+            rebuild(ByteBuffer.allocate(0), 0, minCapacity);
+            return;
+        }
+
+        final MappedByteBuffer existing = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(length, HEADER + (long) maxCapacity * SLOT));
+        if(length < HEADER || existing.getInt(0) != MAGIC) // never overwrite a file that was not written by this store
+            throw new IOException("File is not a session store: " + file);
+
+        final int capacity = existing.getInt(4);
+        if(capacity >= minCapacity && capacity <= maxCapacity && Integer.bitCount(capacity) == 1 && length == HEADER + (long) capacity * SLOT){
+            int size = 0, used = 0;
+            boolean valid = true;
+            for(int i = 0, pos = HEADER; i < capacity && valid; i++, pos += SLOT){
+                final byte state = existing.get(pos);
+                if(state == USED){
+                    valid = isValid(existing, pos);
+                    size++;
+                    used++;
+                }else if(state == DELETED)
+                    used++;
+                else if(state != EMPTY)
+                    valid = false;
+            }
+            if(valid){ // intact table
+                map(capacity);
+                this.size = size;
+                this.used = used;
+                writeHeader();
+                return;
+            }
+        }
+
+        // truncated or corrupt table, keep every complete and valid slot
+        final int slots = (int) Math.max(0, (existing.capacity() - HEADER) / SLOT);
+        int count = 0;
+        for(int i = 0, pos = HEADER; i < slots; i++, pos += SLOT)
+            if(existing.get(pos) == USED && isValid(existing, pos))
+                count++;
+        final ByteBuffer records = ByteBuffer.allocateDirect(count * SLOT);
+        for(int i = 0, pos = HEADER, r = 0; i < slots; i++, pos += SLOT)
+            if(existing.get(pos) == USED && isValid(existing, pos))
+                copy(existing, pos, records, r++ * SLOT);
+        rebuild(records, count, capacityOf(count));
+    }
+
+    private static boolean isValid(final ByteBuffer buffer, final int pos){
+        final int length = buffer.get(pos + 1) & 0xFF;
+        return length > 0 && length <= MAX_ID;
+    }
+
+    private static int capacityOf(final int count){
+        int capacity = minCapacity;
+        while(capacity < maxCapacity && count * 2L > capacity)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    //
+
+    @Override
+    public final HttpSession get(final String sessionID){
+        final byte[] id = sessionID.getBytes(StandardCharsets.UTF_8);
+        if(id.length > MAX_ID)
+            return null;
+
+        lock.readLock().lock(); // sessions are only removed from memory under the write lock
+        try{
+            final HttpSession session = sessions.get(sessionID);
+            if(session != null){
+                recent.add(sessionID);
+                return session;
+            }
+
+            final int slot = find(id);
+            if(slot == -1)
+                return null;
+            final HttpSession loaded = read(HEADER + slot * SLOT, sessionID);
+            final HttpSession existing = sessions.putIfAbsent(sessionID, loaded);
+            recent.add(sessionID);
+            return existing != null ? existing : loaded;
+        }finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public final boolean add(final HttpSession session){
+        final byte[] id = session.getSessionID().getBytes(StandardCharsets.UTF_8);
+        if(id.length == 0 || id.length > MAX_ID)
+            throw new IllegalArgumentException("Session ID must be between 1 and " + MAX_ID + " bytes");
+
+        lock.writeLock().lock();
+        try{
+            if(closed)
+                throw new IllegalStateException("Session store is closed");
+            if(find(id) != -1)
+                return false;
+            if(used + 1 > capacity / 4 * 3)
+                rebuild(); // remove deleted slots or grow
+            insert(id, session.getCreationTime(), session.getLastAccessed());
+            size++;
+            writeHeader();
+            sessions.put(session.getSessionID(), session);
+            return true;
+        }catch(final IOException e){
+            throw new UncheckedIOException(e);
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public final void touch(final HttpSession session){
+        dirty.put(session.getSessionID(), session.getLastAccessed());
+    }
+
+    @Override
+    public final boolean expire(final HttpSession session){
+        final byte[] id = session.getSessionID().getBytes(StandardCharsets.UTF_8);
+        if(id.length > MAX_ID)
+            return false;
+
+        lock.writeLock().lock();
+        try{
+            final int slot = find(id);
+            if(slot == -1)
+                return false;
+            buffer.put(HEADER + slot * SLOT, DELETED);
+            size--;
+            writeHeader();
+            sessions.remove(session.getSessionID());
+            recent.remove(session.getSessionID());
+            dirty.remove(session.getSessionID());
+            return true;
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public final int size(){
+        return size;
+    }
+
+    /**
+     * Returns an iterator over all stored sessions. Sessions that are not in memory are read from the file as the iterator reaches them. If the store grows while iterating, sessions may be skipped or returned twice.
+     *
+     * @return session iterator
+     *
+     * @since 5.1.0
+     */
+    @Override
+    public final Iterator<HttpSession> iterator(){
+        return new Iterator<HttpSession>(){
+
+            private int slot = 0;
+            private HttpSession next = null;
+
+            @Override
+            public final boolean hasNext(){
+                if(next != null)
+                    return true;
+                lock.readLock().lock();
+                try{
+                    while(slot < capacity){
+                        final int pos = HEADER + slot++ * SLOT;
+                        if(buffer.get(pos) == USED){
+                            final String id = readID(buffer, pos);
+                            final HttpSession session = sessions.get(id);
+                            next = session != null ? session : read(pos, id);
+                            return true;
+                        }
+                    }
+                    return false;
+                }finally{
+                    lock.readLock().unlock();
+                }
+            }
+
+            @Override
+            public final HttpSession next(){
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                final HttpSession next = this.next;
+                this.next = null;
+                return next;
+            }
+
+        };
+    }
+
+    //
+
+    private HttpSession read(final int pos, final String sessionID){
+        final Long accessed = dirty.get(sessionID);
+        final long lastAccessed = buffer.getLong(pos + ACCESSED);
+        return new HttpSessionImpl(sessionID, buffer.getLong(pos + CREATED), accessed != null ? Math.max(accessed, lastAccessed) : lastAccessed, this);
+    }
+
+    private static String readID(final ByteBuffer buffer, final int pos){
+        final byte[] id = new byte[buffer.get(pos + 1) & 0xFF];
+        for(int i = 0; i < id.length; i++)
+            id[i] = buffer.get(pos + ID + i);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private int hash(final byte[] id){
+        final int hash = Arrays.hashCode(id);
+        return (hash ^ hash >>> 16) & capacity - 1;
+    }
+
+    // returns the slot holding a session ID, or -1 if not stored
+    private int find(final byte[] id){
+        for(int slot = hash(id), i = 0; i < capacity; slot = slot + 1 & capacity - 1, i++){
+            final int pos = HEADER + slot * SLOT;
+            final byte state = buffer.get(pos);
+            if(state == EMPTY)
+                return -1;
+            if(state == USED && (buffer.get(pos + 1) & 0xFF) == id.length){
+                boolean equals = true;
+                for(int j = 0; j < id.length && equals; j++)
+                    equals = buffer.get(pos + ID + j) == id[j];
+                if(equals)
+                    return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(final byte[] id, final long creationTime, final long lastAccessed){
+        int slot = hash(id);
+        while(buffer.get(HEADER + slot * SLOT) == USED)
+            slot = slot + 1 & capacity - 1;
+        final int pos = HEADER + slot * SLOT;
+        if(buffer.get(pos) == EMPTY)
+            used++;
+        buffer.put(pos + 1, (byte) id.length);
+        buffer.putLong(pos + CREATED, creationTime);
+        buffer.putLong(pos + ACCESSED, lastAccessed);
+        for(int i = 0; i < id.length; i++)
+            buffer.put(pos + ID + i, id[i]);
+        buffer.put(pos, USED);
+    }
+
+    // rehashes the table, growing it if more than half full
+    private void rebuild() throws IOException {
+        final int capacity = Math.max(this.capacity, capacityOf(size + 1));
+        if(size + 1 > capacity / 4 * 3)
+            throw new IllegalStateException("Session store is full");
+
+        final ByteBuffer records = ByteBuffer.allocateDirect(size * SLOT);
+        int count = 0;
+        for(int i = 0, pos = HEADER; i < this.capacity; i++, pos += SLOT)
+            if(buffer.get(pos) == USED)
+                copy(buffer, pos, records, count++ * SLOT);
+        rebuild(records, count, capacity);
+    }
+
+    private void rebuild(final ByteBuffer records, final int count, final int capacity) throws IOException {
+        final long length = HEADER + (long) capacity * SLOT;
+        if(channel.size() > length)
+            channel.truncate(length);
+        map(capacity);
+        for(int pos = 0; pos < length; pos += 8)
+            buffer.putLong(pos, 0);
+
+        size = 0;
+        used = 0;
+        for(int r = 0; r < count && size + 1 <= capacity / 4 * 3; r++){
+            final int pos = r * SLOT;
+            final byte[] id = new byte[records.get(pos + 1) & 0xFF];
+            for(int i = 0; i < id.length; i++)
+                id[i] = records.get(pos + ID + i);
+            if(find(id) == -1){
+                insert(id, records.getLong(pos + CREATED), records.getLong(pos + ACCESSED));
+                size++;
+            }
+        }
+        writeHeader();
+    }
+
+    private void map(final int capacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) capacity * SLOT);
+        this.capacity = capacity;
+    }
+
+    private void writeHeader(){
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, capacity);
+        buffer.putInt(8, size);
+    }
+
+    private static void copy(final ByteBuffer source, final int from, final ByteBuffer target, final int to){
+        for(int i = 0; i < SLOT; i += 8)
+            target.putLong(to + i, source.getLong(from + i));
+    }
+
+    //
+
+    /**
+     * Writes all pending accesses to the file and removes unused sessions from memory. Sessions with attributes or that were returned since the last flush are kept.
+     *
+     * @throws IOException if the file could not be written
+     *
+     * @since 5.1.0
+     */
+    public final void flush() throws IOException {
+        final MappedByteBuffer buffer;
+        lock.writeLock().lock();
+        try{
+            if(closed) return;
+            for(final Map.Entry<String,Long> entry : dirty.entrySet()){
+                final byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                final int slot = id.length <= MAX_ID ? find(id) : -1;
+                if(slot != -1){
+                    final int pos = HEADER + slot * SLOT;
+                    this.buffer.putLong(pos + ACCESSED, Math.max(this.buffer.getLong(pos + ACCESSED), entry.getValue()));
+                }
+                dirty.remove(entry.getKey(), entry.getValue()); // keep if accessed again since
+            }
+            buffer = this.buffer;
+
+            final long now = System.currentTimeMillis();
+            sessions.values().removeIf(session -> !recent.contains(session.getSessionID()) && now - session.getLastAccessed() > idle && !session.hasAttributes());
+            recent.clear();
+        }finally{
+            lock.writeLock().unlock();
+        }
+        buffer.force();
+    }
+
+    /**
+     * Writes all pending accesses and closes the file. Sessions can not be added after closing.
+     *
+     * @throws IOException if the file could not be written
+     *
+     * @since 5.1.0
+     */
+    @Override
+    public final void close() throws IOException {
+        executor.shutdown();
+        lock.writeLock().lock();
+        try{
+            if(closed) return;
+            try{
+                flush();
+            }finally{
+                closed = true;
+                channel.close();
+            }
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    //
+
+    @Override
+    public String toString(){
+        return "FileSessionStore{" +
+               "file=" + file +
+               ", sessions=" + size +
+               ", capacity=" + capacity +
+               '}';
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// decodes application/x-www-form-urlencoded queries and bodies in a single pass
+abstract class FormUtility {
+
+    private FormUtility(){ }
+
+    // scratch buffer for decoding escaped values, only used while decoding
+    private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[256]);
+
+    // returns a read only map of keys to read only values in the order they were sent
+    static Map<String,List<String>> parse(final CharSequence s){
+        if(s == null || s.length() == 0) return Collections.emptyMap();
+
+        final Map<String,List<String>> OUT = new LinkedHashMap<>();
+        final int len = s.length();
+        int start = 0;
+        while(start < len){
+            int end = start, eq = -1;
+            for(char c; end < len && (c = s.charAt(end)) != '&'; end++)
+                if(c == '=' && eq == -1)
+                    eq = end;
+
+            if(end > start && eq != start){ // skip empty pairs and pairs without a key
+                final String key   = decode(s, start, eq == -1 ? end : eq);
+                final String value = eq == -1 ? "" : decode(s, eq + 1, end);
+                final List<String> values = OUT.get(key);
+                if(values == null)
+                    OUT.put(key, Collections.singletonList(value)); // most keys only have one value
+                else if(values.size() == 1 && !(values instanceof ArrayList)){
+                    final List<String> multiple = new ArrayList<>(4);
+                    multiple.add(values.get(0));
+                    multiple.add(value);
+                    OUT.put(key, multiple);
+                }else
+                    values.add(value);
+            }
+            start = end + 1;
+        }
+
+        for(final Map.Entry<String,List<String>> entry : OUT.entrySet())
+            if(entry.getValue() instanceof ArrayList)
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        return Collections.unmodifiableMap(OUT);
+    }
+
+    // returns a read only map of keys to their last value
+    static Map<String,String> last(final Map<String,List<String>> values){
+        if(values.isEmpty()) return Collections.emptyMap();
+        final Map<String,String> OUT = new LinkedHashMap<>(values.size() * 4 / 3 + 1);
+        for(final Map.Entry<String,List<String>> entry : values.entrySet())
+            OUT.put(entry.getKey(), entry.getValue().get(entry.getValue().size() - 1));
+        return Collections.unmodifiableMap(OUT);
+    }
+
+    // malformed escapes are kept as is
+    static String decode(final CharSequence s, final int from, final int to){
+        int i = from;
+        while(i < to && s.charAt(i) != '%' && s.charAt(i) != '+') i++;
+        if(i == to) // nothing to decode
+            return s.subSequence(from, to).toString();
+
+        byte[] buffer = scratch.get();
+        if(buffer.length < (to - from) * 3) // worst case every char is encoded as 3 bytes
+            scratch.set(buffer = new byte[Math.max(buffer.length * 2, (to - from) * 3)]);
+
+        int n = 0;
+        for(i = from; i < to; i++){
+            final char c = s.charAt(i);
+            final int hi, lo;
+            if(c == '+')
+                buffer[n++] = ' ';
+            else if(c == '%' && i + 2 < to && (hi = Character.digit(s.charAt(i + 1), 16)) != -1 && (lo = Character.digit(s.charAt(i + 2), 16)) != -1){
+                buffer[n++] = (byte) (hi << 4 | lo);
+                i += 2;
+            }else if(c < 0x80)
+                buffer[n++] = (byte) c;
+            else{ // encode characters that were not escaped
+                final int cp = Character.codePointAt(s, i);
+                if(Character.charCount(cp) == 2) i++;
+                for(final byte b : new String(Character.toChars(cp)).getBytes(StandardCharsets.UTF_8))
+                    buffer[n++] = b;
+            }
+        }
+        return new String(buffer, 0, n, StandardCharsets.UTF_8);
+    }
+
+}
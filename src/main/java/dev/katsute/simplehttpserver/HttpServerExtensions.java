@@ -30,7 +30,7 @@ import java.util.Map;
  * @see SimpleHttpServer
  * @see SimpleHttpsServer
  * @since 5.0.0
- * @version 5.0.0
+ * @version 5.1.0
  * @author Katsute
  */
 interface HttpServerExtensions {
@@ -79,6 +79,29 @@ interface HttpServerExtensions {
 
     HttpSessionHandler getSessionHandler();
 
+    /**
+     * Sets how gziped responses are compressed for exchanges on this server.
+     *
+     * @param compressionOptions compression options, or null to use the defaults
+     *
+     * @see CompressionOptions
+     * @see SimpleHttpExchange#send(byte[], int, boolean)
+     * @see #getCompressionOptions()
+     * @since 5.1.0
+     */
+    void setCompressionOptions(final CompressionOptions compressionOptions);
+
+    /**
+     * Returns the compression options for the server.
+     *
+     * @return compression options, or null if using the defaults
+     *
+     * @see CompressionOptions
+     * @see #setCompressionOptions(CompressionOptions)
+     * @since 5.1.0
+     */
+    CompressionOptions getCompressionOptions();
+
     /**
      * Returns the session for a given exchange.
      *
@@ -18,18 +18,39 @@
 
 package dev.katsute.simplehttpserver;
 
+import java.util.Objects;
+import java.util.Set;
+
 /**
  * A session keeps track of a single client across multiple exchanges.
  *
  * @see HttpSessionHandler
  * @since 5.0.0
- * @version 5.0.0
+ * @version 5.1.0
  * @author Katsute
  */
 public abstract class HttpSession {
 
     HttpSession(){ }
 
+    /**
+     * Creates a session, for use by session stores that load sessions from storage. Accessing the session calls {@link SessionStore#touch(HttpSession)} on the store.
+     * <br>
+     * Sessions are equal if they have the same session ID.
+     *
+     * @param sessionID session ID
+     * @param creationTime when the session was created as milliseconds since epoch
+     * @param lastAccessed when the session was last accessed as milliseconds since epoch
+     * @param store session store the session belongs to
+     * @return session
+     *
+     * @see SessionStore
+     * @since 5.1.0
+     */
+    public static HttpSession create(final String sessionID, final long creationTime, final long lastAccessed, final SessionStore store){
+        return new HttpSessionImpl(Objects.requireNonNull(sessionID), creationTime, lastAccessed, Objects.requireNonNull(store));
+    }
+
     /**
      * Returns the session ID.
      *
@@ -66,4 +87,81 @@ public abstract class HttpSession {
      */
     public abstract void update();
 
+    //
+
+    /**
+     * Returns an attribute stored on the session.
+     *
+     * @param name attribute name
+     * @return attribute value, or null if not set
+     *
+     * @see #getAttribute(String, Class)
+     * @see #setAttribute(String, Object)
+     * @since 5.1.0
+     */
+    public abstract Object getAttribute(final String name);
+
+    /**
+     * Returns an attribute stored on the session as a particular type.
+     *
+     * @param name attribute name
+     * @param type attribute type
+     * @param <T> attribute type
+     * @return attribute value, or null if not set
+     * @throws ClassCastException if the attribute is not of that type
+     *
+     * @see #getAttribute(String)
+     * @see #setAttribute(String, Object)
+     * @since 5.1.0
+     */
+    public final <T> T getAttribute(final String name, final Class<T> type){
+        return type.cast(getAttribute(name));
+    }
+
+    /**
+     * Stores an attribute on the session. Attributes are removed when the session expires.
+     *
+     * @param name attribute name
+     * @param value attribute value, or null to remove the attribute
+     *
+     * @see #getAttribute(String)
+     * @see #getAttribute(String, Class)
+     * @see #removeAttribute(String)
+     * @since 5.1.0
+     */
+    public abstract void setAttribute(final String name, final Object value);
+
+    /**
+     * Removes an attribute from the session.
+     *
+     * @param name attribute name
+     * @return previous attribute value, or null if not set
+     *
+     * @see #setAttribute(String, Object)
+     * @since 5.1.0
+     */
+    public abstract Object removeAttribute(final String name);
+
+    /**
+     * Returns the names of all attributes on the session.
+     *
+     * @return attribute names
+     *
+     * @see #getAttribute(String)
+     * @since 5.1.0
+     */
+    public abstract Set<String> getAttributeNames();
+
+    /**
+     * Returns if the session has any attributes.
+     *
+     * @return if the session has attributes
+     *
+     * @see #getAttributeNames()
+     * @since 5.1.0
+     */
+    public boolean hasAttributes(){
+        return !getAttributeNames().isEmpty();
+    }
+
 }
\ No newline at end of file
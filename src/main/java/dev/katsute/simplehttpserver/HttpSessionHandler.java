@@ -18,25 +18,34 @@
 
 package dev.katsute.simplehttpserver;
 
-import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 
+import java.lang.ref.WeakReference;
 import java.net.HttpCookie;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.LongSupplier;
 
 /**
  * The session handler is used to assign sessions to exchanges.
+ * <br>
+ * Sessions are kept in a {@link SessionStore}, by default a {@link MemorySessionStore}. Sessions that have not been accessed within {@link SessionOptions#idleTimeout} or that are older than {@link SessionOptions#timeout} are expired along with their attributes, either when they are next requested or by a background reaper. By default sessions do not expire. If {@link SessionOptions#maxSessions} is set, the oldest sessions are removed to make room for new ones.
  *
  * @see HttpSession
+ * @see SessionOptions
+ * @see SessionStore
  * @since 5.0.0
- * @version 5.0.0
+ * @version 5.1.0
  * @author Katsute
  */
 public class HttpSessionHandler {
 
-    private final Map<String,HttpSession> sessions = Collections.synchronizedMap(new HashMap<>());
+    private final SessionStore store;
+    private final NavigableSet<Order> order; // session IDs by creation time, oldest first, only if there is a maximum
 
     private final String cookie;
+    private final SessionOptions options;
+    private final LongSupplier clock;
 
     /**
      * Creates a session handler using the cookie <code>__session-id</code>.
@@ -55,7 +64,76 @@ public class HttpSessionHandler {
      * @since 5.0.0
      */
     public HttpSessionHandler(final String cookie){
-        this.cookie = Objects.requireNonNull(cookie);
+        this(cookie, new SessionOptions());
+    }
+
+    /**
+     * Creates a session handler using a specified cookie and session options.
+     *
+     * @param cookie cookie to use for session ID
+     * @param options session options
+     *
+     * @see SessionOptions
+     * @since 5.1.0
+     */
+    public HttpSessionHandler(final String cookie, final SessionOptions options){
+        this(cookie, options, new MemorySessionStore());
+    }
+
+    /**
+     * Creates a session handler using a specified cookie, session options, and session store.
+     *
+     * @param cookie cookie to use for session ID
+     * @param options session options
+     * @param store session store
+     *
+     * @see SessionOptions
+     * @see SessionStore
+     * @since 5.1.0
+     */
+    public HttpSessionHandler(final String cookie, final SessionOptions options, final SessionStore store){
+        this(cookie, options, store, System::currentTimeMillis);
+    }
+
+    // clock is used for expiry and for sessions created by this handler
+    HttpSessionHandler(final String cookie, final SessionOptions options, final SessionStore store, final LongSupplier clock){
+        this.cookie  = Objects.requireNonNull(cookie);
+        this.options = new SessionOptions(Objects.requireNonNull(options));
+        this.store   = Objects.requireNonNull(store);
+        this.clock   = Objects.requireNonNull(clock);
+
+        if(this.options.maxSessions > 0){
+            order = new ConcurrentSkipListSet<>();
+            for(final HttpSession session : store) // sessions already in store
+                order.add(new Order(session));
+        }else
+            order = null;
+
+        Reaper.schedule(this);
+    }
+
+    /**
+     * Returns the session options.
+     *
+     * @return session options
+     *
+     * @see SessionOptions
+     * @since 5.1.0
+     */
+    public final SessionOptions getSessionOptions(){
+        return new SessionOptions(options);
+    }
+
+    /**
+     * Returns the session store.
+     *
+     * @return session store
+     *
+     * @see SessionStore
+     * @since 5.1.0
+     */
+    public final SessionStore getSessionStore(){
+        return store;
     }
 
     /**
@@ -66,24 +144,38 @@ public class HttpSessionHandler {
      *
      * @since 5.0.0
      */
-    public synchronized String assignSessionID(final HttpExchange exchange){
+    public String assignSessionID(final HttpExchange exchange){
         String id;
         do id = UUID.randomUUID().toString(); // assign session ID
-        while(sessions.containsKey(id));
+        while(store.get(id) != null);
         return id;
     }
 
-    private String getSetSession(final Headers headers){ // get session that will be set by cookie
-        for(final Map.Entry<String,List<String>> entry : headers.entrySet())
-            if(entry.getKey().equalsIgnoreCase("Set-Cookie")){
-                for(final String value : entry.getValue())
-                    if(value.startsWith(cookie + "=\""))
-                        return value.substring(cookie.length() + 2, value.length() - 1);
-                break;
-            }
+    private String getSetSession(final HttpExchange exchange){ // get session that will be set by cookie
+        final List<String> values = exchange.getResponseHeaders().get("Set-Cookie");
+        if(values != null)
+            for(final String value : values)
+                if(value.startsWith(cookie + '='))
+                    return unquote(value.substring(cookie.length() + 1));
         return null;
     }
 
+    private String getCookieSession(final HttpExchange exchange){ // get session from request cookie
+        final List<String> values = exchange.getRequestHeaders().get("Cookie");
+        if(values != null)
+            for(final String value : values)
+                for(final String pair : value.split(";")){
+                    final int eq = pair.indexOf('=');
+                    if(eq != -1 && pair.substring(0, eq).trim().equals(cookie))
+                        return unquote(pair.substring(eq + 1).trim());
+                }
+        return null;
+    }
+
+    private static String unquote(final String value){
+        return value.length() > 1 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"' ? value.substring(1, value.length() - 1) : value;
+    }
+
     /**
      * Returns the session associated with a particular exchange.
      *
@@ -93,81 +185,138 @@ public class HttpSessionHandler {
      * @since 5.0.0
      */
     public final HttpSession getSession(final HttpExchange exchange){
-        final String sessionID;
-        final HttpSession session;
-
-        final Map<String,String> cookies = new HashMap<>();
-        for(final Map.Entry<String,List<String>> entry : Objects.requireNonNull(exchange).getRequestHeaders().entrySet()){
-            if(entry.getKey().equalsIgnoreCase("Cookie")){
-                for(final String value : entry.getValue()){
-                    final String[] pair = value.split("=");
-                    cookies.put(pair[0], pair[1]);
-                }
-                break;
-            }
-        }
+        final String setSession = getSetSession(Objects.requireNonNull(exchange));
+        final String sessionID = setSession != null ? setSession : getCookieSession(exchange); // use session that will be written or session from cookie
 
-        final String setSession = getSetSession(exchange.getResponseHeaders());
-        sessionID = setSession != null ? setSession : cookies.get(cookie); // use session that will be written or session from cookie
-
-        synchronized(this){
-            if(!sessions.containsKey(sessionID)){
-                session = new HttpSession() {
-                    private final String sessionID;
-                    private final long creationTime;
-                    private long lastAccessTime;
-
-                    {
-                        sessionID = assignSessionID(exchange);
-                        creationTime = System.currentTimeMillis();
-                        lastAccessTime = creationTime;
-                        sessions.put(sessionID, this);
-                    }
-
-                    @Override
-                    public final String getSessionID(){
-                        return sessionID;
-                    }
-
-                    //
-
-                    @Override
-                    public final long getCreationTime(){
-                        return creationTime;
-                    }
-
-                    @Override
-                    public final long getLastAccessed(){
-                        return lastAccessTime;
-                    }
-
-                    @Override
-                    public synchronized final void update(){
-                        lastAccessTime = System.currentTimeMillis();
-                    }
-
-                };
-
-                final HttpCookie OUT = new HttpCookie(cookie, session.getSessionID());
-                OUT.setHttpOnly(true);
-
-                exchange.getResponseHeaders().add("Set-Cookie", OUT.toString());
-                sessions.put(session.getSessionID(), session);
-            }else{
-                session = sessions.get(sessionID);
+        final long now = clock.getAsLong();
+        if(sessionID != null){
+            final HttpSession session = store.get(sessionID);
+            if(session != null){
+                if(!isExpired(session, now))
+                    return session;
+                expire(session);
             }
         }
+
+        HttpSession session;
+        do session = new HttpSessionImpl(assignSessionID(exchange), now, now, store, clock);
+        while(!store.add(session));
+
+        if(order != null)
+            order.add(new Order(session));
+
+        if(options.maxSessions > 0 && store.size() > options.maxSessions)
+            evict();
+
+        final HttpCookie OUT = new HttpCookie(cookie, session.getSessionID());
+        OUT.setHttpOnly(true);
+
+        exchange.getResponseHeaders().add("Set-Cookie", OUT.toString());
         return session;
     }
 
     //
 
+    private boolean isExpired(final HttpSession session, final long now){
+        return options.idleTimeout > 0 && now - session.getLastAccessed() > options.idleTimeout
+            || options.timeout > 0 && now - session.getCreationTime() > options.timeout;
+    }
+
+    // removes expired sessions
+    final void reap(){
+        final long now = clock.getAsLong();
+        for(final HttpSession session : store)
+            if(isExpired(session, now))
+                expire(session);
+    }
+
+    // removes the oldest sessions until under the maximum
+    private void evict(){
+        Order oldest;
+        while(store.size() > options.maxSessions && (oldest = order.pollFirst()) != null){
+            final HttpSession session = store.get(oldest.sessionID);
+            if(session != null)
+                expire(session);
+        }
+    }
+
+    // removes a session and its attributes
+    private void expire(final HttpSession session){
+        if(store.expire(session) && session instanceof HttpSessionImpl)
+            ((HttpSessionImpl) session).clearAttributes();
+        if(order != null)
+            order.remove(new Order(session));
+    }
+
+    private static final class Order implements Comparable<Order> {
+
+        private final long creationTime;
+        private final String sessionID;
+
+        private Order(final HttpSession session){
+            this.creationTime = session.getCreationTime();
+            this.sessionID    = session.getSessionID();
+        }
+
+        @Override
+        public final int compareTo(final Order o){
+            final int compare = Long.compare(creationTime, o.creationTime);
+            return compare != 0 ? compare : sessionID.compareTo(o.sessionID);
+        }
+
+    }
+
+    // background reaper, shared by all handlers and only holds a weak reference so unused handlers can be collected
+    private static final class Reaper implements Runnable {
+
+        private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "simplehttpserver-session-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private final WeakReference<HttpSessionHandler> handler;
+        private volatile ScheduledFuture<?> future;
+
+        private Reaper(final HttpSessionHandler handler){
+            this.handler = new WeakReference<>(handler);
+        }
+
+        static void schedule(final HttpSessionHandler handler){
+            final SessionOptions options = handler.options;
+            final long timeout =
+                options.idleTimeout > 0 && options.timeout > 0
+                ? Math.min(options.idleTimeout, options.timeout)
+                : Math.max(options.idleTimeout, options.timeout);
+            if(timeout <= 0) return; // sessions never expire
+
+            final long period = Math.max(1000, Math.min(60 * 1000, timeout / 2));
+            final Reaper reaper = new Reaper(handler);
+            reaper.future = executor.scheduleAtFixedRate(reaper, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public final void run(){
+            final HttpSessionHandler handler = this.handler.get();
+            if(handler == null){
+                final ScheduledFuture<?> future = this.future;
+                if(future != null)
+                    future.cancel(false);
+            }else
+                handler.reap();
+        }
+
+    }
+
+    //
+
     @Override
     public String toString(){
         return "HttpSessionHandler{" +
-               "sessions=" + sessions +
+               "store=" + store +
                ", cookie='" + cookie + '\'' +
+               ", options=" + options +
                '}';
     }
 
-}
\ No newline at end of file
+}
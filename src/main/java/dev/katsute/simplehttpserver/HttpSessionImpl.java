@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver;
+
+import java.util.*;
+import java.util.function.LongSupplier;
+
+final class HttpSessionImpl extends HttpSession {
+
+    private final String sessionID;
+    private final long creationTime;
+    private volatile long lastAccessTime;
+
+    private final SessionStore store;
+    private final LongSupplier clock;
+
+    private static final Object[] empty = new Object[0];
+
+    // attribute names and values in alternating order, replaced on every change so reads do not need to lock
+    private volatile Object[] attributes = empty;
+
+    HttpSessionImpl(final String sessionID, final long creationTime, final long lastAccessTime, final SessionStore store){
+        this(sessionID, creationTime, lastAccessTime, store, System::currentTimeMillis);
+    }
+
+    HttpSessionImpl(final String sessionID, final long creationTime, final long lastAccessTime, final SessionStore store, final LongSupplier clock){
+        this.sessionID      = sessionID;
+        this.creationTime   = creationTime;
+        this.lastAccessTime = lastAccessTime;
+        this.store          = store;
+        this.clock          = clock;
+    }
+
+    @Override
+    public final String getSessionID(){
+        return sessionID;
+    }
+
+    //
+
+    @Override
+    public final long getCreationTime(){
+        return creationTime;
+    }
+
+    @Override
+    public final long getLastAccessed(){
+        return lastAccessTime;
+    }
+
+    @Override
+    public final void update(){
+        lastAccessTime = clock.getAsLong();
+        store.touch(this);
+    }
+
+    //
+
+    @Override
+    public final Object getAttribute(final String name){
+        final Object[] attributes = this.attributes;
+        for(int i = 0; i < attributes.length; i += 2)
+            if(attributes[i].equals(name))
+                return attributes[i + 1];
+        return null;
+    }
+
+    @Override
+    public synchronized final void setAttribute(final String name, final Object value){
+        if(value == null){
+            removeAttribute(name);
+            return;
+        }
+        final Object[] attributes = this.attributes;
+        for(int i = 0; i < attributes.length; i += 2)
+            if(attributes[i].equals(name)){
+                final Object[] copy = attributes.clone();
+                copy[i + 1] = value;
+                this.attributes = copy;
+                return;
+            }
+        final Object[] copy = Arrays.copyOf(attributes, attributes.length + 2);
+        copy[attributes.length]     = Objects.requireNonNull(name);
+        copy[attributes.length + 1] = value;
+        this.attributes = copy;
+    }
+
+    @Override
+    public synchronized final Object removeAttribute(final String name){
+        final Object[] attributes = this.attributes;
+        for(int i = 0; i < attributes.length; i += 2)
+            if(attributes[i].equals(name)){
+                final Object value = attributes[i + 1];
+                final Object[] copy = new Object[attributes.length - 2];
+                System.arraycopy(attributes, 0, copy, 0, i);
+                System.arraycopy(attributes, i + 2, copy, i, attributes.length - i - 2);
+                this.attributes = copy;
+                return value;
+            }
+        return null;
+    }
+
+    @Override
+    public final Set<String> getAttributeNames(){
+        final Object[] attributes = this.attributes;
+        final Set<String> names = new LinkedHashSet<>(attributes.length);
+        for(int i = 0; i < attributes.length; i += 2)
+            names.add((String) attributes[i]);
+        return Collections.unmodifiableSet(names);
+    }
+
+    @Override
+    public final boolean hasAttributes(){
+        return attributes.length > 0;
+    }
+
+    final void clearAttributes(){
+        attributes = empty;
+    }
+
+    //
+
+    @Override
+    public final boolean equals(final Object o){
+        return this == o || o instanceof HttpSessionImpl && sessionID.equals(((HttpSessionImpl) o).sessionID);
+    }
+
+    @Override
+    public final int hashCode(){
+        return sessionID.hashCode();
+    }
+
+    @Override
+    public String toString(){
+        return "HttpSession{" +
+               "sessionID='" + sessionID + '\'' +
+               ", creationTime=" + creationTime +
+               ", lastAccessTime=" + lastAccessTime +
+               ", attributes=" + getAttributeNames() +
+               '}';
+    }
+
+}
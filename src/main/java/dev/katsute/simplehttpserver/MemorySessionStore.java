@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A session store that keeps sessions in memory. Sessions are lost when the application stops.
+ *
+ * @see SessionStore
+ * @see FileSessionStore
+ * @since 5.1.0
+ * @version 5.1.0
+ * @author Katsute
+ */
+public class MemorySessionStore implements SessionStore {
+
+    private final Map<String,HttpSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty session store.
+     *
+     * @since 5.1.0
+     */
+    public MemorySessionStore(){ }
+
+    @Override
+    public final HttpSession get(final String sessionID){
+        return sessions.get(sessionID);
+    }
+
+    @Override
+    public final boolean add(final HttpSession session){
+        return sessions.putIfAbsent(session.getSessionID(), session) == null;
+    }
+
+    @Override
+    public final void touch(final HttpSession session){ }
+
+    @Override
+    public final boolean expire(final HttpSession session){
+        return sessions.remove(session.getSessionID(), session);
+    }
+
+    @Override
+    public final int size(){
+        return sessions.size();
+    }
+
+    @Override
+    public final Iterator<HttpSession> iterator(){
+        return Collections.unmodifiableCollection(sessions.values()).iterator();
+    }
+
+    //
+
+    @Override
+    public String toString(){
+        return "MemorySessionStore{" +
+               "sessions=" + sessions +
+               '}';
+    }
+
+}
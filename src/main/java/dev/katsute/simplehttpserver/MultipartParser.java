@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// reads multipart/form-data directly from the request body, parts larger than the threshold are written to temporary files
+final class MultipartParser {
+
+    private static final int MAX_HEADER_LINE = 8 * 1024;
+
+    static String getBoundary(final String contentType){
+        if(contentType == null || !contentType.toLowerCase().startsWith("multipart/form-data"))
+            return null;
+        final String boundary = parseParameters(contentType).get("boundary");
+        return boundary == null || boundary.isEmpty() ? null : boundary;
+    }
+
+    // parses parameters in the form of key=value or key="value" after the first ';'
+    private static Map<String,String> parseParameters(final String header){
+        final Map<String,String> OUT = new HashMap<>();
+        final int len = header.length();
+        int i = header.indexOf(';');
+        while(i != -1 && i < len){
+            i++; // skip ';'
+            while(i < len && header.charAt(i) == ' ') i++;
+
+            final int eq = header.indexOf('=', i);
+            if(eq == -1) break;
+            final String key = header.substring(i, eq).trim();
+
+            i = eq + 1;
+            final String value;
+            if(i < len && header.charAt(i) == '"'){
+                final int end = header.indexOf('"', i + 1);
+                value = header.substring(i + 1, end == -1 ? len : end);
+                i = end == -1 ? len : header.indexOf(';', end);
+            }else{
+                final int end = header.indexOf(';', i);
+                value = header.substring(i, end == -1 ? len : end).trim();
+                i = end;
+            }
+            OUT.put(key, value);
+        }
+        return OUT;
+    }
+
+    //
+
+    private final InputStream IN;
+    private final String boundary;
+    private final long threshold;
+    private final List<Path> files;
+
+    private byte[] delimiter; // CRLF + boundary line
+    private byte[] buffer;
+    private int pos = 0, lim = 0;
+    private boolean eof = false;
+
+    MultipartParser(final InputStream IN, final String boundary, final long threshold, final List<Path> files){
+        this(IN, boundary, threshold, files, new byte[8 * 1024]);
+    }
+
+    // buffer is only used while parsing, so a reused scratch buffer can be passed
+    MultipartParser(final InputStream IN, final String boundary, final long threshold, final List<Path> files, final byte[] buffer){
+        this.IN        = IN;
+        this.buffer    = buffer;
+        this.boundary  = "--" + boundary;
+        this.threshold = threshold;
+        this.files     = files;
+    }
+
+    final Map<String,Record> parse() throws IOException {
+        final Map<String,Record> OUT = new HashMap<>();
+
+        // skip preamble; use the first boundary line as the delimiter since some clients pad the boundary
+        String line;
+        do line = readLine();
+            while(line != null && !line.trim().endsWith(boundary));
+        if(line == null) return OUT;
+
+        delimiter = ("\r\n" + line.trim()).getBytes(StandardCharsets.ISO_8859_1);
+        if(buffer.length < delimiter.length * 2)
+            buffer = Arrays.copyOf(buffer, delimiter.length * 2);
+
+        while(true){
+            final Map<String,Record.Header> headers = readHeaders();
+            final Record.Header disposition = headers.get("Content-Disposition");
+            final String name = disposition == null ? null : disposition.getParameter("name");
+
+            final PartOutputStream part = new PartOutputStream();
+            final boolean closed;
+            try{
+                closed = readPart(part);
+            }finally{
+                part.close();
+            }
+
+            if(name != null){
+                final boolean isFile = disposition.getParameter("filename") != null && headers.get("Content-Type") != null;
+                OUT.put(name, isFile
+                    ? new FileRecord(name, headers, part.bytes(), part.path, part.size)
+                    : new Record(name, headers, part.bytes(), part.path, part.size)
+                );
+            }
+
+            if(!closed) break; // body ended without boundary
+
+            // after boundary either '--' (end) or CRLF
+            if(!fill(2)) break;
+            if(buffer[pos] == '-' && buffer[pos + 1] == '-') break;
+            if(!skipLine()) break;
+        }
+        return OUT;
+    }
+
+    // headers
+
+    private Map<String,Record.Header> readHeaders() throws IOException {
+        final Map<String,Record.Header> OUT = new TreeMap<>(String.CASE_INSENSITIVE_ORDER); // header names are case insensitive
+        String line;
+        while((line = readLine()) != null && !line.isEmpty()){
+            final int colon = line.indexOf(':');
+            if(colon == -1) continue;
+            final String name  = line.substring(0, colon).trim();
+            final String rest  = line.substring(colon + 1).trim();
+            final int semi     = rest.indexOf(';');
+            final String value = semi == -1 ? rest : rest.substring(0, semi).trim();
+            OUT.put(name, new Record.Header(name, value, parseParameters(rest)));
+        }
+        return OUT;
+    }
+
+    private String readLine() throws IOException {
+        final ByteArrayOutputStream OUT = new ByteArrayOutputStream();
+        while(true){
+            if(pos == lim && !fill(1))
+                return OUT.size() == 0 ? null : OUT.toString("UTF-8");
+            final byte b = buffer[pos++];
+            if(b == '\n'){
+                final byte[] line = OUT.toByteArray();
+                final int len = line.length > 0 && line[line.length - 1] == '\r' ? line.length - 1 : line.length;
+                return new String(line, 0, len, StandardCharsets.UTF_8);
+            }
+            if(OUT.size() >= MAX_HEADER_LINE)
+                throw new IOException("Multipart header exceeds " + MAX_HEADER_LINE + " bytes");
+            OUT.write(b);
+        }
+    }
+
+    private boolean skipLine() throws IOException {
+        while(true){
+            if(pos == lim && !fill(1)) return false;
+            if(buffer[pos++] == '\n') return true;
+        }
+    }
+
+    // body
+
+    // writes bytes up to the next delimiter to the output; returns false if stream ended before delimiter
+    private boolean readPart(final OutputStream OUT) throws IOException {
+        final int dlen = delimiter.length;
+        while(true){
+            fill(dlen);
+            final int found = indexOfDelimiter();
+            if(found != -1){
+                OUT.write(buffer, pos, found - pos);
+                pos = found + dlen;
+                return true;
+            }else if(eof){
+                OUT.write(buffer, pos, lim - pos);
+                pos = lim;
+                return false;
+            }else{ // keep possible partial delimiter at end of buffer
+                final int safe = Math.max(pos, lim - dlen + 1);
+                OUT.write(buffer, pos, safe - pos);
+                pos = safe;
+                compactAndRead();
+            }
+        }
+    }
+
+    private int indexOfDelimiter(){
+        final byte first = delimiter[0];
+        final int dlen   = delimiter.length;
+        outer:
+        for(int i = pos, max = lim - dlen; i <= max; i++){
+            if(buffer[i] != first) continue;
+            for(int j = 1; j < dlen; j++)
+                if(buffer[i + j] != delimiter[j])
+                    continue outer;
+            return i;
+        }
+        return -1;
+    }
+
+    // buffer
+
+    // ensures at least n bytes are available, unless the stream has ended
+    private boolean fill(final int n) throws IOException {
+        while(lim - pos < n && !eof)
+            compactAndRead();
+        return lim - pos >= n;
+    }
+
+    private void compactAndRead() throws IOException {
+        if(pos > 0){
+            System.arraycopy(buffer, pos, buffer, 0, lim - pos);
+            lim -= pos;
+            pos = 0;
+        }
+        final int read = IN.read(buffer, lim, buffer.length - lim);
+        if(read == -1)
+            eof = true;
+        else
+            lim += read;
+    }
+
+    //
+
+    // holds part content in memory until it exceeds the threshold, then writes to a temporary file
+    private final class PartOutputStream extends OutputStream {
+
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private OutputStream disk = null;
+        private Path path = null;
+        private long size = 0;
+
+        @Override
+        public final void write(final int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public final void write(final byte[] b, final int off, final int len) throws IOException {
+            if(len == 0) return;
+            if(disk == null && size + len > threshold){ // spill to disk
+                path = Files.createTempFile("simplehttpserver-", ".part");
+                files.add(path);
+                disk = new BufferedOutputStream(Files.newOutputStream(path));
+                memory.writeTo(disk);
+                memory = null;
+            }
+            if(disk != null)
+                disk.write(b, off, len);
+            else
+                memory.write(b, off, len);
+            size += len;
+        }
+
+        final byte[] bytes(){
+            return memory == null ? null : memory.toByteArray();
+        }
+
+        @Override
+        public final void close() throws IOException {
+            if(disk != null)
+                disk.close();
+        }
+
+    }
+
+}
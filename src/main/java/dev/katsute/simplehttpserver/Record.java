@@ -18,6 +18,11 @@
 
 package dev.katsute.simplehttpserver;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -33,22 +38,27 @@ import java.util.*;
 public class Record {
 
     private final Map<String,Header> headers;
-    private final String name, value;
-
-    @SuppressWarnings("unchecked")
-    Record(final Map.Entry<String,Map<String,?>> entry){
-        name  = Objects.requireNonNull(entry.getKey());
-        value = Objects.requireNonNull(Objects.requireNonNull(entry.getValue()).get("value")).toString();
-
-        final Map<String,Header> headers = new HashMap<>();
-        for(final Map.Entry<String,Map<String,?>> e : Objects.requireNonNull((Map<String,Map<String,?>>) entry.getValue().get("headers")).entrySet()){
-            headers.put(e.getKey(), new Header(
-                Objects.requireNonNull(e.getValue().get("header-name")).toString(),
-                Objects.requireNonNull(e.getValue().get("header-value")).toString(),
-                (Map<String,String>) Objects.requireNonNull(e.getValue().get("parameters"))
-            ));
+    private final String name;
+    private String value; // lazy
+
+    final byte[] bytes; // null if stored on disk
+    final Path path; // null if stored in memory
+    final long size;
+
+    Record(final String name, final Map<String,Header> headers, final byte[] bytes, final Path path, final long size){
+        this.name    = Objects.requireNonNull(name);
+        this.headers = Objects.requireNonNull(headers);
+        this.bytes   = bytes;
+        this.path    = path;
+        this.size    = size;
+    }
+
+    final byte[] readBytes(){
+        try{
+            return bytes != null ? bytes : Files.readAllBytes(path);
+        }catch(final IOException e){
+            throw new UncheckedIOException(e);
         }
-        this.headers = headers;
     }
 
     /**
@@ -63,14 +73,19 @@ public class Record {
     }
 
     /**
-     * Returns the form value.
+     * Returns the form value. If the record was stored on disk, it is read each time this is called.
      *
      * @return form value
      *
      * @since 5.0.0
      */
     public final String getValue(){
-        return value;
+        if(value != null)
+            return value;
+        final String str = new String(readBytes(), StandardCharsets.UTF_8);
+        if(path == null) // only retain values stored in memory
+            value = str;
+        return str;
     }
 
     /**
@@ -202,7 +217,8 @@ public class Record {
         return "Record{" +
                "headers=" + headers +
                ", name='" + name + '\'' +
-               ", value='" + value + '\'' +
+               ", size=" + size +
+               ", path=" + path +
                '}';
     }
 
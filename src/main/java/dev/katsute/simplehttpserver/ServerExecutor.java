@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An executor that runs handlers on virtual threads on Java 21 or later, or on a bounded thread pool otherwise, and counts the requests it runs.
+ * <br>
+ * In both modes at most {@link ExecutorOptions#threads} requests are handled at once and at most {@link ExecutorOptions#queue} requests wait for their turn. Handlers are never run on the thread that accepts connections.
+ * <br>
+ * Requests over capacity can be answered with <code>503 Service Unavailable</code> by servers that were created with this executor, see {@link ExecutorOptions#shed} and {@link ExecutorOptions#deadline}.
+ *
+ * @see ExecutorOptions
+ * @see SimpleHttpServer#create(int, int, ExecutorOptions)
+ * @see SimpleHttpsServer#create(int, int, ExecutorOptions)
+ * @since 5.1.0
+ * @version 5.1.0
+ * @author Katsute
+ */
+public final class ServerExecutor implements Executor {
+
+    // looked up at runtime so the library can still be compiled and run on Java 8
+    private static final Method newVirtualThreadPerTaskExecutor;
+
+    static{
+        Method method = null;
+        try{
+            method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        }catch(final NoSuchMethodException ignored){ }
+        newVirtualThreadPerTaskExecutor = method;
+    }
+
+    /**
+     * Creates an executor.
+     *
+     * @param options executor options
+     * @return executor
+     *
+     * @see ExecutorOptions
+     * @since 5.1.0
+     */
+    public static ServerExecutor create(final ExecutorOptions options){
+        return new ServerExecutor(new ExecutorOptions(Objects.requireNonNull(options))); // dereference to prevent modification
+    }
+
+    //
+
+    private final ExecutorOptions options;
+    private final ExecutorService executor;
+    private final boolean virtual;
+
+    private final Semaphore admitted; // requests handled or waiting
+    private final Semaphore running; // requests handled, virtual only since the pool is already bounded
+
+    private final AtomicInteger active = new AtomicInteger(), queued = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong(), overflow = new AtomicLong(), rejected = new AtomicLong();
+
+    // set while a request is run only to be rejected, read by the server before running handlers
+    private static final ThreadLocal<ServerExecutor> shedding = new ThreadLocal<>();
+
+    private ServerExecutor(final ExecutorOptions options){
+        this.options = options;
+
+        ExecutorService virtual = null;
+        if(options.virtual && newVirtualThreadPerTaskExecutor != null)
+            try{
+                virtual = (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+            }catch(final ReflectiveOperationException ignored){ }
+
+        final int threads = Math.max(1, options.threads);
+        this.admitted = new Semaphore(threads + Math.max(0, options.queue));
+
+        if(virtual != null){
+            this.executor = virtual;
+            this.running  = new Semaphore(threads);
+            this.virtual  = true;
+        }else{
+            final AtomicInteger count = new AtomicInteger();
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                threads, threads,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), // bounded by admitted
+                runnable -> new Thread(runnable, "simplehttpserver-worker-" + count.incrementAndGet())
+            );
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.running  = null;
+            this.virtual  = false;
+        }
+    }
+
+    private static final long maxWait = 10 * 1000; // longest the server thread waits for room when there is no deadline
+
+    @Override
+    public final void execute(final Runnable command){
+        Objects.requireNonNull(command);
+        if(executor.isShutdown()){ // reject so the connection is closed
+            shed(command);
+            return;
+        }
+        if(!admitted.tryAcquire()){ // queue is full
+            overflow.incrementAndGet();
+            if(options.shed || !await()){
+                shed(command);
+                return;
+            }
+        }
+        queued.incrementAndGet();
+        try{
+            executor.execute(new Task(command));
+        }catch(final RejectedExecutionException ignored){ // shut down
+            queued.decrementAndGet();
+            admitted.release();
+            shed(command);
+        }
+    }
+
+    // waits on the server thread for room in the queue, no more connections are accepted while waiting
+    private boolean await(){
+        try{
+            return admitted.tryAcquire(options.deadline > 0 ? options.deadline : maxWait, TimeUnit.MILLISECONDS);
+        }catch(final InterruptedException ignored){
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private final class Task implements Runnable {
+
+        private final Runnable command;
+        private final long queued = System.nanoTime();
+
+        Task(final Runnable command){
+            this.command = command;
+        }
+
+        @Override
+        public final void run(){
+            if(running != null)
+                running.acquireUninterruptibly();
+            ServerExecutor.this.queued.decrementAndGet();
+            try{
+                if(options.deadline > 0 && System.nanoTime() - queued > TimeUnit.MILLISECONDS.toNanos(options.deadline)) // waited too long
+                    shed(command);
+                else
+                    handle(command);
+            }finally{
+                if(running != null)
+                    running.release();
+                admitted.release();
+            }
+        }
+
+    }
+
+    private void handle(final Runnable command){
+        active.incrementAndGet();
+        try{
+            command.run();
+        }finally{
+            active.decrementAndGet();
+            completed.incrementAndGet();
+        }
+    }
+
+    private void shed(final Runnable command){
+        shedding.set(this);
+        try{
+            command.run();
+        }finally{
+            shedding.remove();
+        }
+    }
+
+    // returns true if the exchange was rejected and handlers should not be run
+    static boolean reject(final HttpExchange exchange) throws IOException {
+        final ServerExecutor executor = shedding.get();
+        if(executor == null) return false;
+        executor.rejected.incrementAndGet();
+        try{
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(executor.options.retryAfter));
+            exchange.sendResponseHeaders(503, -1);
+        }finally{
+            exchange.close();
+        }
+        return true;
+    }
+
+    //
+
+    /**
+     * Returns if handlers are run on virtual threads.
+     *
+     * @return if virtual
+     *
+     * @since 5.1.0
+     */
+    public final boolean isVirtual(){
+        return virtual;
+    }
+
+    /**
+     * Returns the amount of requests being handled.
+     *
+     * @return active requests
+     *
+     * @since 5.1.0
+     */
+    public final int getActiveCount(){
+        return active.get();
+    }
+
+    /**
+     * Returns the amount of requests waiting for a thread.
+     *
+     * @return waiting requests
+     *
+     * @since 5.1.0
+     */
+    public final int getQueuedCount(){
+        return queued.get();
+    }
+
+    /**
+     * Returns the amount of requests that were handled.
+     *
+     * @return handled requests
+     *
+     * @since 5.1.0
+     */
+    public final long getCompletedCount(){
+        return completed.get();
+    }
+
+    /**
+     * Returns the amount of requests that did not fit in the queue and had to wait for room or were rejected.
+     *
+     * @return overflowed requests
+     *
+     * @see ExecutorOptions#queue
+     * @since 5.1.0
+     */
+    public final long getOverflowCount(){
+        return overflow.get();
+    }
+
+    /**
+     * Returns the amount of requests that were answered with <code>503 Service Unavailable</code>.
+     *
+     * @return rejected requests
+     *
+     * @see ExecutorOptions#shed
+     * @see ExecutorOptions#deadline
+     * @since 5.1.0
+     */
+    public final long getRejectedCount(){
+        return rejected.get();
+    }
+
+    /**
+     * Stops accepting requests, requests already submitted are still handled.
+     *
+     * @since 5.1.0
+     */
+    public final void shutdown(){
+        executor.shutdown();
+    }
+
+    //
+
+    @Override
+    public String toString(){
+        return "ServerExecutor{" +
+               "options=" + options +
+               ", virtual=" + virtual +
+               ", active=" + active +
+               ", queued=" + getQueuedCount() +
+               ", completed=" + completed +
+               ", overflow=" + overflow +
+               ", rejected=" + rejected +
+               '}';
+    }
+
+}
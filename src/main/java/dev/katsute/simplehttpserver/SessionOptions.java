@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver;
+
+/**
+ * Represents a set of options for how long sessions are kept.
+ *
+ * @see HttpSessionHandler
+ * @since 5.1.0
+ * @version 5.1.0
+ * @author Katsute
+ */
+public class SessionOptions {
+
+    /**
+     * Creates a new set of session options.
+     *
+     * @since 5.1.0
+     */
+    public SessionOptions(){ }
+
+    SessionOptions(final SessionOptions options){
+        this.idleTimeout = options.idleTimeout;
+        this.timeout     = options.timeout;
+        this.maxSessions = options.maxSessions;
+    }
+
+    /**
+     * How long a session can go without being accessed before it expires, in milliseconds. If 0 or less, sessions do not expire from inactivity. By default sessions do not expire.
+     *
+     * @see HttpSession#getLastAccessed()
+     * @since 5.1.0
+     */
+    public long idleTimeout = 0;
+
+    /**
+     * How long a session can exist before it expires, in milliseconds. If 0 or less, sessions do not expire from age.
+     *
+     * @see HttpSession#getCreationTime()
+     * @since 5.1.0
+     */
+    public long timeout = 0;
+
+    /**
+     * Maximum amount of sessions to keep. When a new session would exceed this, the oldest sessions are removed. If 0 or less, there is no limit.
+     *
+     * @since 5.1.0
+     */
+    public int maxSessions = 0;
+
+    @Override
+    public String toString(){
+        return "SessionOptions{" +
+               "idleTimeout=" + idleTimeout +
+               ", timeout=" + timeout +
+               ", maxSessions=" + maxSessions +
+               '}';
+    }
+
+    //
+
+    /**
+     * Builder used to create {@link SessionOptions}.
+     *
+     * @see SessionOptions
+     * @since 5.1.0
+     * @version 5.1.0
+     * @author Katsute
+     */
+    public static class Builder {
+
+        private final SessionOptions options = new SessionOptions();
+
+        /**
+         * Sets the idle timeout.
+         *
+         * @param idleTimeout idle timeout in milliseconds
+         * @return builder
+         *
+         * @see SessionOptions#idleTimeout
+         * @since 5.1.0
+         */
+        public final Builder setIdleTimeout(final long idleTimeout){
+            options.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the timeout.
+         *
+         * @param timeout timeout in milliseconds
+         * @return builder
+         *
+         * @see SessionOptions#timeout
+         * @since 5.1.0
+         */
+        public final Builder setTimeout(final long timeout){
+            options.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of sessions.
+         *
+         * @param maxSessions maximum sessions
+         * @return builder
+         *
+         * @see SessionOptions#maxSessions
+         * @since 5.1.0
+         */
+        public final Builder setMaxSessions(final int maxSessions){
+            options.maxSessions = maxSessions;
+            return this;
+        }
+
+        /**
+         * Returns the builder as session options.
+         *
+         * @return session options
+         *
+         * @see SessionOptions
+         * @since 5.1.0
+         */
+        public final SessionOptions build(){
+            return new SessionOptions(options);
+        }
+
+        @Override
+        public String toString(){
+            return "Builder{" +
+                   "options=" + options +
+                   '}';
+        }
+
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver;
+
+import java.util.Iterator;
+
+/**
+ * A session store holds the sessions for a {@link HttpSessionHandler}.
+ * <br>
+ * Methods are called on the request path and must not block, stores that persist sessions should do so in the background. Stores that load sessions from storage can create them using {@link HttpSession#create(String, long, long, SessionStore)}.
+ *
+ * @see HttpSessionHandler
+ * @see MemorySessionStore
+ * @see FileSessionStore
+ * @since 5.1.0
+ * @version 5.1.0
+ * @author Katsute
+ */
+public interface SessionStore extends Iterable<HttpSession> {
+
+    /**
+     * Returns the session with a particular session ID.
+     *
+     * @param sessionID session ID
+     * @return session, or null if there is no session with that ID
+     *
+     * @since 5.1.0
+     */
+    HttpSession get(final String sessionID);
+
+    /**
+     * Adds a new session, unless a session with the same ID already exists.
+     *
+     * @param session session
+     * @return if the session was added
+     *
+     * @since 5.1.0
+     */
+    boolean add(final HttpSession session);
+
+    /**
+     * Called when a session was accessed.
+     *
+     * @param session session
+     *
+     * @see HttpSession#update()
+     * @since 5.1.0
+     */
+    void touch(final HttpSession session);
+
+    /**
+     * Removes the session with the same session ID as a session.
+     *
+     * @param session session
+     * @return if the session was removed
+     *
+     * @since 5.1.0
+     */
+    boolean expire(final HttpSession session);
+
+    /**
+     * Returns the amount of sessions stored.
+     *
+     * @return amount of sessions
+     *
+     * @since 5.1.0
+     */
+    int size();
+
+    /**
+     * Returns an iterator over all stored sessions. The iterator must not throw a {@link java.util.ConcurrentModificationException}.
+     *
+     * @return session iterator
+     *
+     * @since 5.1.0
+     */
+    @Override
+    Iterator<HttpSession> iterator();
+
+}
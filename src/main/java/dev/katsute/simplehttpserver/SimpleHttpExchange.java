@@ -24,6 +24,7 @@ import com.sun.net.httpserver.HttpServer;
 import java.io.File;
 import java.io.IOException;
 import java.net.HttpCookie;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -35,7 +36,10 @@ import java.util.Map;
  * If a user sends a <code>POST</code> request to the server, a map of keys and values; or a {@link MultipartFormData} can be retrieved by using {@link #getPostMap()} and {@link #getMultipartFormData()}.
  *
  * <h3><code>multipart/form-data</code></h3>
- * For requests that have content type <code>multipart/form-data</code>, data must be retrieved using {@link #getMultipartFormData()}, which returns a {@link MultipartFormData} using {@link Record}s and {@link FileRecord}s. Files sent through here are sent as a {@link Byte} array and not a {@link File}.
+ * For requests that have content type <code>multipart/form-data</code>, data must be retrieved using {@link #getMultipartFormData()}, which returns a {@link MultipartFormData} using {@link Record}s and {@link FileRecord}s. The body is parsed as it is read; records smaller than the threshold set by {@link #getMultipartFormData(long)} are kept in memory and larger records are stored in temporary files, which are deleted when the exchange is closed.
+ *
+ * <h3>Parsing</h3>
+ * Requests are parsed when first accessed. The request body is read when it is first requested, or before the response is sent so that it remains accessible afterwards. Handlers that read {@link #getRequestBody()} themselves before then will skip this.
  *
  * <h2>Cookies</h2>
  * A clients browser cookies for the site can be retrieved by using the {@link #getCookie(String)} or {@link #getCookies()} method.
@@ -55,6 +59,8 @@ import java.util.Map;
  * To send response headers you must first retrieve then with {@link #getResponseHeaders()}, modify them, then send them using {@link #sendResponseHeaders(int, long)} or any other of the send methods.
  * <br>
  * Data can be sent as a {@link Byte} array, {@link String}, or as a {@link File}. Responses can optionally gziped to compress the data sent.
+ * <br>
+ * Gziped responses are only compressed if the client accepts gzip, and if the response is large enough and not an already compressed content type, see {@link CompressionOptions}.
  * <ul>
  *      <li>{@link #send(int)}</li>
  *      <li>{@link #send(byte[])}</li>
@@ -74,7 +80,7 @@ import java.util.Map;
  *
  * @see HttpExchange
  * @since 5.0.0
- * @version 5.0.0
+ * @version 5.1.0
  * @author Katsute
  */
 @SuppressWarnings("SpellCheckingInspection")
@@ -82,8 +88,11 @@ public abstract class SimpleHttpExchange extends HttpExchange {
 
     SimpleHttpExchange(){ }
 
+    // nested handlers share one exchange so the request is only parsed once
     static SimpleHttpExchange create(final HttpExchange exchange){
-        return new SimpleHttpExchangeImpl(exchange);
+        return exchange instanceof SimpleHttpExchange
+            ? (SimpleHttpExchange) exchange
+            : SimpleHttpExchangeImpl.wrap(exchange);
     }
 
     //
@@ -122,16 +131,29 @@ public abstract class SimpleHttpExchange extends HttpExchange {
     public abstract String getRawGet();
 
     /**
-     * Returns GET query as a map of keys and values. The GET query is the string of characters located after the <code>?</code> in the URL.
+     * Returns GET query as a read only map of keys and values. The GET query is the string of characters located after the <code>?</code> in the URL. If a key is repeated, the last value is used.
      *
      * @return GET map
      *
      * @see #getRawGet()
+     * @see #getGetValues()
      * @see #hasGet()
      * @since 5.0.0
      */
     public abstract Map<String,String> getGetMap();
 
+    /**
+     * Returns GET query as a read only map of keys and every value sent for that key, in the order they were sent. The GET query is the string of characters located after the <code>?</code> in the URL.
+     *
+     * @return GET map with all values
+     *
+     * @see #getRawGet()
+     * @see #getGetMap()
+     * @see #hasGet()
+     * @since 5.1.0
+     */
+    public abstract Map<String,List<String>> getGetValues();
+
     /**
      * Returns if there is a GET query. The GET query is the string of characters located after the <code>?</code> in the URL.
      *
@@ -146,7 +168,7 @@ public abstract class SimpleHttpExchange extends HttpExchange {
     //
 
     /**
-     * Returns the raw string representation of a POST body.
+     * Returns the raw string representation of a POST body. For content type <code>multipart/form-data</code> the raw body is not kept and this returns null, use {@link #getMultipartFormData()} instead.
      *
      * @return raw POST body
      *
@@ -158,11 +180,12 @@ public abstract class SimpleHttpExchange extends HttpExchange {
     public abstract String getRawPost();
 
     /**
-     * Returns the POST body as a map of keys and values. For content type <code>multipart/form-data</code> use {@link #getMultipartFormData()}.
+     * Returns the POST body as a read only map of keys and values. If a key is repeated, the last value is used. For content type <code>multipart/form-data</code> use {@link #getMultipartFormData()}.
      *
      * @return POST map
      *
      * @see #getRawPost()
+     * @see #getPostValues()
      * @see #getMultipartFormData()
      * @see #hasPost()
      * @since 5.0.0
@@ -170,11 +193,25 @@ public abstract class SimpleHttpExchange extends HttpExchange {
     public abstract Map<String,?> getPostMap();
 
     /**
-     * For content type <code>multipart/form-data</code>, returns POST body as a {@link MultipartFormData} object.
+     * Returns the POST body as a read only map of keys and every value sent for that key, in the order they were sent. For content type <code>multipart/form-data</code> this is empty, use {@link #getMultipartFormData()} instead.
+     *
+     * @return POST map with all values
+     *
+     * @see #getRawPost()
+     * @see #getPostMap()
+     * @see #getMultipartFormData()
+     * @see #hasPost()
+     * @since 5.1.0
+     */
+    public abstract Map<String,List<String>> getPostValues();
+
+    /**
+     * For content type <code>multipart/form-data</code>, returns POST body as a {@link MultipartFormData} object. Records larger than 1 MB are stored in temporary files instead of memory.
      *
      * @return multipart/form-data object
      *
      * @see MultipartFormData
+     * @see #getMultipartFormData(long)
      * @see #getRawPost()
      * @see #getPostMap()
      * @see #hasPost()
@@ -182,6 +219,21 @@ public abstract class SimpleHttpExchange extends HttpExchange {
      */
     public abstract MultipartFormData getMultipartFormData();
 
+    /**
+     * For content type <code>multipart/form-data</code>, returns POST body as a {@link MultipartFormData} object. Records larger than the threshold are stored in temporary files instead of memory.
+     * <br>
+     * The threshold is only used if the body has not already been read.
+     *
+     * @param threshold maximum size in bytes of a record to keep in memory
+     * @return multipart/form-data object
+     *
+     * @see MultipartFormData
+     * @see FileRecord#getPath()
+     * @see #getMultipartFormData()
+     * @since 5.1.0
+     */
+    public abstract MultipartFormData getMultipartFormData(final long threshold);
+
     /**
      * Returns if there is a POST body.
      *
@@ -319,7 +371,7 @@ public abstract class SimpleHttpExchange extends HttpExchange {
      * Sends a byte array to the client that can be gziped.
      *
      * @param bytes byte array
-     * @param gzip if the response should be compressed
+     * @param gzip if the response should be compressed, if the client accepts it
      * @throws IOException IO exception
      *
      * @see #send(byte[])
@@ -343,7 +395,7 @@ public abstract class SimpleHttpExchange extends HttpExchange {
      *
      * @param bytes byte array
      * @param responseCode response code
-     * @param gzip if the response should be compressed
+     * @param gzip if the response should be compressed, if the client accepts it
      * @throws IOException IO exception
      *
      * @see #send(byte[])
@@ -411,7 +463,7 @@ public abstract class SimpleHttpExchange extends HttpExchange {
      * Sends a string to the client that can be gziped.
      *
      * @param string string to send
-     * @param gzip if the response should be compressed
+     * @param gzip if the response should be compressed, if the client accepts it
      * @throws IOException IO exception
      *
      * @see #send(String)
@@ -435,7 +487,7 @@ public abstract class SimpleHttpExchange extends HttpExchange {
      *
      * @param string string to send
      * @param responseCode response code
-     * @param gzip if the response should be compressed
+     * @param gzip if the response should be compressed, if the client accepts it
      * @throws IOException IO exception
      *
      * @see #send(String)
@@ -455,7 +507,7 @@ public abstract class SimpleHttpExchange extends HttpExchange {
     public abstract void send(final String string, final int responseCode, final boolean gzip) throws IOException;
 
     /**
-     * Sends a file to the client.
+     * Sends a file to the client. The file is streamed to the client instead of being read into memory.
      *
      * @param file file
      * @throws IOException IO exception
@@ -503,7 +555,7 @@ public abstract class SimpleHttpExchange extends HttpExchange {
      * Sends a byte array to the client that can be gziped.
      *
      * @param file file to send
-     * @param gzip if the response should be compressed
+     * @param gzip if the response should be compressed, if the client accepts it
      * @throws IOException IO exception
      *
      * @see #send(File)
@@ -523,11 +575,11 @@ public abstract class SimpleHttpExchange extends HttpExchange {
     public abstract void send(final File file, final boolean gzip) throws IOException;
 
     /**
-     * Sends a file to the client with a response code that can be gziped.
+     * Sends a file to the client with a response code that can be gziped. The file is streamed to the client instead of being read into memory.
      *
      * @param file file to send
      * @param responseCode response code
-     * @param gzip if the response should be compressed
+     * @param gzip if the response should be compressed, if the client accepts it
      * @throws IOException IO exception
      *
      * @see #send(File)
@@ -21,151 +21,199 @@ package dev.katsute.simplehttpserver;
 import com.sun.net.httpserver.*;
 
 import java.io.*;
+import java.lang.ref.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.file.*;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.zip.GZIPOutputStream;
 
 final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
 
-    private static Map<String,String> parseWwwFormEnc(final String s){
-        final Map<String,String> OUT = new HashMap<>();
-        final String[] pairs = s.split("&");
-
-        for(final String pair : pairs){
-            if(pair.contains("=")){
-                final String[] kv = pair.split("=");
-                try{
-                    OUT.put(
-                        URLDecoder.decode(kv[0], "UTF-8"),
-                        kv.length == 2 ? URLDecoder.decode(kv[1], "UTF-8") : null
-                    );
-                }catch(UnsupportedEncodingException e){
-                    // should not occur
-                }
-            }
+    private static final long DEFAULT_MULTIPART_THRESHOLD = 1024 * 1024;
+
+    // scratch buffer for reading request bodies, only used while reading
+    private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[8 * 1024]);
+
+    // wrapper for each exchange, reused if a handler passes the unwrapped exchange to another simple handler, even on another thread
+    private static final Map<HttpExchange,WeakReference<SimpleHttpExchangeImpl>> wrappers = Collections.synchronizedMap(new WeakHashMap<>());
+
+    static SimpleHttpExchangeImpl wrap(final HttpExchange exchange){
+        synchronized(wrappers){
+            final WeakReference<SimpleHttpExchangeImpl> reference = wrappers.get(exchange);
+            final SimpleHttpExchangeImpl last = reference != null ? reference.get() : null;
+            if(last != null)
+                return last;
+            final SimpleHttpExchangeImpl wrapper = new SimpleHttpExchangeImpl(exchange);
+            wrappers.put(exchange, new WeakReference<>(wrapper));
+            return wrapper;
         }
-        return OUT;
     }
 
-    private static final Pattern boundaryHeaderPattern = Pattern.compile("(.*): (.*?)(?:$|; )(.*)"); // returns the headers listed after each webkit boundary
-    private static final Pattern contentDispositionKVPPattern = Pattern.compile("(.*?)=\"(.*?)\"(?:; |$)"); // returns the keys, values, and parameters for the content disposition header
+    // multipart files of exchanges that were collected without being closed, deleted the next time a multipart body is read
+    private static final ReferenceQueue<SimpleHttpExchangeImpl> collected = new ReferenceQueue<>();
+    private static final Set<MultipartFiles> uncollected = Collections.synchronizedSet(new HashSet<>());
+
+    private static final class MultipartFiles extends PhantomReference<SimpleHttpExchangeImpl> {
+
+        private final List<Path> files;
+
+        MultipartFiles(final SimpleHttpExchangeImpl exchange, final List<Path> files){
+            super(exchange, collected);
+            this.files = files;
+        }
+
+    }
+
+    private static void deleteCollectedFiles(){
+        Reference<? extends SimpleHttpExchangeImpl> reference;
+        while((reference = collected.poll()) != null){
+            uncollected.remove(reference);
+            deleteFiles(((MultipartFiles) reference).files);
+        }
+    }
+
+    private static void deleteFiles(final List<Path> files){
+        for(final Path path : files)
+            try{
+                Files.deleteIfExists(path);
+            }catch(final IOException ignored){ }
+        files.clear();
+    }
 
     //
 
     private final HttpExchange exchange;
 
     private final String rawGet;
-    private final Map<String,String> getMap;
+    private Map<String,List<String>> getValues; // lazy
+    private Map<String,String> getMap; // lazy
 
-    private final String rawPost;
-    private final Map<String,?> postMap;
-    private final MultipartFormData multipartFormData;
+    private boolean bodyRead = false, bodyStreamed = false;
+    private long multipartThreshold = DEFAULT_MULTIPART_THRESHOLD;
+    private String rawPost; // lazy
+    private Map<String,List<String>> postValues; // lazy
+    private Map<String,Object> postMap; // lazy
+    private MultipartFormData multipartFormData; // lazy
+    private final List<Path> multipartFiles = new ArrayList<>(0); // files that multipart records were stored to
+    private MultipartFiles multipartFilesReference; // only registered once a multipart body is read
 
-    private final Map<String,String> cookies;
+    private Map<String,String> cookies; // lazy
 
     //
 
-    @SuppressWarnings("unchecked")
     SimpleHttpExchangeImpl(final HttpExchange exchange){
         this.exchange = Objects.requireNonNull(exchange);
+        this.rawGet   = exchange.getRequestURI().getRawQuery();
+    }
 
-        rawGet = exchange.getRequestURI().getRawQuery();
-        getMap = rawGet == null ? new HashMap<>() : parseWwwFormEnc(rawGet);
-
-        String OUT;
-        try(
-            final InputStream IN = exchange.getRequestBody();
-            final Scanner scanner = new Scanner(IN, "UTF-8")
-        ){
-            OUT = scanner.useDelimiter("\\A").next();
-        }catch(final IOException | NoSuchElementException ignored){
-            OUT = null;
+    // request is only read once it is needed; body is read before the response is sent so it remains accessible afterwards
+
+    // maps are read only so they can be returned without copying
+    private synchronized void parseGet(){
+        if(getValues == null){
+            getValues = FormUtility.parse(rawGet);
+            getMap    = FormUtility.last(getValues);
         }
+    }
 
-        rawPost = OUT;
-
-        if(rawPost != null){
-            final String content_type = exchange.getRequestHeaders().getFirst("Content-type");
-            if(content_type != null && content_type.startsWith("multipart/form-data")){
-                final String webkitBoundary = content_type.substring(content_type.indexOf("; boundary=") + 11);
-                final String startBoundary = "--" + webkitBoundary + "\r\n";
-                final String endBoundary = "--" + webkitBoundary + "--\r\n"; // the final boundary in the request
-
-                final Map<String, Map<String,?>> postMap_buffer = new HashMap<>();
-                final String[] pairs = OUT.replace(endBoundary, "").split(Pattern.quote(startBoundary));
-                for(String pair : pairs){
-                    final Map<String, Map<String,Object>> postHeaders = new HashMap<>();
-                    if(pair.contains("\r\n\r\n")){
-                        final String[] headers = pair.substring(0, pair.indexOf("\r\n\r\n")).split("\r\n");
-
-                        for(String header : headers){
-                            final Map<String,Object> headerMap = new HashMap<>();
-                            final Map<String,String> val = new HashMap<>();
-
-                            final Matcher headerMatcher = boundaryHeaderPattern.matcher(header);
-                            if(headerMatcher.find()){
-                                final Matcher contentDispositionKVPMatcher = contentDispositionKVPPattern.matcher(headerMatcher.group(3));
-                                while(contentDispositionKVPMatcher.find())
-                                    val.put(contentDispositionKVPMatcher.group(1), contentDispositionKVPMatcher.group(2));
-
-                                headerMap.put("header-name", headerMatcher.group(1));
-                                headerMap.put("header-value", headerMatcher.group(2));
-                                headerMap.put("parameters", val);
-                            }
-                            postHeaders.put((String) headerMap.get("header-name"), headerMap);
-                        }
-
-                        final Map<String,Object> row = new HashMap<>();
-                        row.put("headers", postHeaders);
-                        row.put("value", pair.substring(pair.indexOf("\r\n\r\n") + 4, pair.lastIndexOf("\r\n")));
-
-                        postMap_buffer.put(
-                            ((Map<String, String>) postHeaders.get("Content-Disposition").get("parameters")).get("name"),
-                            row
-                        );
-                    }
-                }
-                Map<String, Record> form_buffer = new HashMap<>();
-                for(final Map.Entry<String, Map<String,?>> e : postMap_buffer.entrySet()){
-                    try{ // try to map as file record first
-                        form_buffer.put(e.getKey(), new FileRecord(e));
-                    }catch(final NullPointerException ignored){
-                        try{ // try to map a standard record next
-                            form_buffer.put(e.getKey(), new Record(e));
-                        }catch(final NullPointerException ignored2){}
-                    }catch(final ClassCastException ignored){
-                        form_buffer = Collections.emptyMap();
-                        break;
-                    }
-                }
+    private boolean hasRequestBody(){ // avoid reading requests that declare no body
+        final Headers headers = exchange.getRequestHeaders();
+        final String length = headers.getFirst("Content-length");
+        return headers.containsKey("Transfer-encoding") || (length != null && !length.trim().equals("0"));
+    }
+
+    private synchronized void readBody(){
+        if(bodyRead) return;
+        bodyRead = true;
+        if(bodyStreamed || !hasRequestBody()) return;
 
-                postMap = postMap_buffer;
-                multipartFormData = form_buffer.isEmpty() ? null : new MultipartFormData(form_buffer);
+        final String boundary = MultipartParser.getBoundary(exchange.getRequestHeaders().getFirst("Content-type"));
+        try(final InputStream IN = exchange.getRequestBody()){
+            if(boundary != null){ // multipart is parsed directly from the body and not stored as a string
+                deleteCollectedFiles();
+                if(multipartFilesReference == null) // files are deleted once this exchange is collected if it is never closed
+                    uncollected.add(multipartFilesReference = new MultipartFiles(this, multipartFiles));
+                final Map<String,Record> records = new MultipartParser(IN, boundary, multipartThreshold, multipartFiles, scratch.get()).parse();
+                multipartFormData = records.isEmpty() ? null : new MultipartFormData(records);
             }else{
-                postMap = parseWwwFormEnc(rawPost);
-                multipartFormData = null;
+                final ByteArrayOutputStream OUT = new ByteArrayOutputStream(getContentLength());
+                final byte[] buffer = scratch.get();
+                int len;
+                while((len = IN.read(buffer)) != -1)
+                    OUT.write(buffer, 0, len);
+                rawPost = OUT.size() == 0 ? null : OUT.toString("UTF-8");
             }
-        }else{
-            postMap = new HashMap<>();
+        }catch(final IOException ignored){
+            rawPost = null;
             multipartFormData = null;
+            deleteMultipartFiles();
+        }
+    }
+
+    // initial size for the body, capped so a declared length can not allocate more than is sent
+    private int getContentLength(){
+        try{
+            final String length = exchange.getRequestHeaders().getFirst("Content-length");
+            return length == null ? 32 : (int) Math.max(32, Math.min(Long.parseLong(length.trim()), 64 * 1024));
+        }catch(final NumberFormatException ignored){
+            return 32;
+        }
+    }
+
+    private synchronized void deleteMultipartFiles(){
+        deleteFiles(multipartFiles);
+        if(multipartFilesReference != null){
+            uncollected.remove(multipartFilesReference);
+            multipartFilesReference.clear();
+            multipartFilesReference = null;
         }
+    }
 
-        final Map<String,String> cookies = new HashMap<>();
-        for(final Map.Entry<String,List<String>> entry : Objects.requireNonNull(exchange).getRequestHeaders().entrySet()){
-            if(entry.getKey().equalsIgnoreCase("Cookie")){
-                for(final String value : entry.getValue()){
-                    final String[] pair = value.split("=");
-                    cookies.put(pair[0], pair[1]);
+    private synchronized void parsePost(){
+        if(postMap == null){
+            readBody();
+            if(multipartFormData != null){ // legacy map of headers and values
+                final Map<String,Map<String,?>> OUT = new HashMap<>();
+                for(final Record record : multipartFormData.getEntries().values()){
+                    final Map<String,Map<String,?>> headers = new HashMap<>();
+                    for(final Record.Header header : record.getHeaders().values()){
+                        final Map<String,Object> headerMap = new HashMap<>();
+                        headerMap.put("header-name", header.getName());
+                        headerMap.put("header-value", header.getValue());
+                        headerMap.put("parameters", header.getParameters());
+                        headers.put(header.getName(), headerMap);
+                    }
+                    final Map<String,Object> row = new HashMap<>();
+                    row.put("headers", headers);
+                    if(record.path == null) // exclude values stored on disk
+                        row.put("value", record.getValue());
+                    OUT.put(record.getName(), row);
                 }
-                break;
+                postValues = Collections.emptyMap();
+                postMap    = Collections.unmodifiableMap(OUT);
+            }else{
+                postValues = FormUtility.parse(rawPost);
+                postMap    = Collections.unmodifiableMap(FormUtility.last(postValues));
             }
         }
+    }
 
-        this.cookies = cookies;
+    private synchronized Map<String,String> parseCookies(){
+        if(cookies == null){
+            final Map<String,String> cookies = new HashMap<>();
+            for(final Map.Entry<String,List<String>> entry : exchange.getRequestHeaders().entrySet()){
+                if(entry.getKey().equalsIgnoreCase("Cookie")){
+                    for(final String value : entry.getValue()){
+                        final String[] pair = value.split("=");
+                        cookies.put(pair[0], pair[1]);
+                    }
+                    break;
+                }
+            }
+            this.cookies = cookies;
+        }
+        return cookies;
     }
 
     //
@@ -224,6 +272,10 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
 
     @Override
     public final InputStream getRequestBody(){
+        synchronized(this){
+            if(!bodyRead) // handler reads body itself
+                bodyStreamed = true;
+        }
         return exchange.getRequestBody();
     }
 
@@ -251,7 +303,14 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
 
     @Override
     public final Map<String,String> getGetMap(){
-        return new HashMap<>(getMap);
+        parseGet();
+        return getMap;
+    }
+
+    @Override
+    public final Map<String,List<String>> getGetValues(){
+        parseGet();
+        return getValues;
     }
 
     @Override
@@ -263,34 +322,53 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
 
     @Override
     public final String getRawPost(){
+        readBody();
         return rawPost;
     }
 
     @Override
     public final Map<String,Object> getPostMap(){
-        return new HashMap<>(postMap);
+        parsePost();
+        return postMap;
+    }
+
+    @Override
+    public final Map<String,List<String>> getPostValues(){
+        parsePost();
+        return postValues;
     }
 
     @Override
     public final MultipartFormData getMultipartFormData(){
+        readBody();
         return multipartFormData;
     }
 
+    @Override
+    public final MultipartFormData getMultipartFormData(final long threshold){
+        synchronized(this){
+            if(!bodyRead)
+                multipartThreshold = threshold;
+        }
+        return getMultipartFormData();
+    }
+
     @Override
     public final boolean hasPost(){
-        return rawPost != null;
+        readBody();
+        return rawPost != null || multipartFormData != null;
     }
 
     //
 
     @Override
     public final String getCookie(final String cookie){
-        return cookies.get(Objects.requireNonNull(cookie));
+        return parseCookies().get(Objects.requireNonNull(cookie));
     }
 
     @Override
     public final Map<String,String> getCookies(){
-        return new HashMap<>(cookies);
+        return new HashMap<>(parseCookies());
     }
 
     @Override
@@ -324,6 +402,7 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
 
     @Override
     public synchronized final void sendResponseHeaders(final int code, final long length) throws IOException {
+        readBody(); // request body is discarded once response is sent
         exchange.sendResponseHeaders(code, length);
     }
 
@@ -349,18 +428,15 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
 
     @Override
     public final void send(final byte[] response, final int responseCode, final boolean gzip) throws IOException {
-        if(gzip){
-            exchange.getResponseHeaders().set("Accept-Encoding","gzip");
-            exchange.getResponseHeaders().set("Content-Encoding","gzip");
-            exchange.getResponseHeaders().set("Connection","keep-alive");
-            sendResponseHeaders(responseCode, 0);
-            try(
-                final OutputStream OS = exchange.getResponseBody();
-                final GZIPOutputStream OUT = new GZIPOutputStream(OS);
-            ){
-                OUT.write(Objects.requireNonNull(response));
-                OUT.finish();
-                OUT.flush();
+        Objects.requireNonNull(response);
+        final CompressionOptions options = getCompressionOptions();
+        if(gzip && compress(response.length, options)){ // compress first so response can be sent with a fixed length
+            final byte[] compressed = CompressionUtility.gzip(response, options);
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            sendResponseHeaders(responseCode, compressed.length);
+            try(final OutputStream OS = exchange.getResponseBody()){
+                OS.write(compressed);
+                OS.flush();
             }
         }else{
             sendResponseHeaders(responseCode, response.length);
@@ -408,18 +484,65 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
 
     @Override
     public final void send(final File file, final int responseCode, final boolean gzip) throws IOException {
-        send(Files.readAllBytes(Objects.requireNonNull(file).toPath()), responseCode, gzip);
+        try(final FileChannel IN = FileChannel.open(Objects.requireNonNull(file).toPath(), StandardOpenOption.READ)){
+            final long size = IN.size();
+            final CompressionOptions options = getCompressionOptions();
+            if(gzip && compress(size, options)){
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                sendResponseHeaders(responseCode, 0);
+                try(
+                    final OutputStream OS = exchange.getResponseBody();
+                    final CompressionUtility.GzipOutputStream OUT = new CompressionUtility.GzipOutputStream(OS, options)
+                ){
+                    transfer(IN, size, OUT);
+                    OUT.finish();
+                    OUT.flush();
+                }
+            }else{
+                sendResponseHeaders(responseCode, size == 0 ? -1 : size); // 0 would send as chunked
+                try(final OutputStream OUT = exchange.getResponseBody()){
+                    transfer(IN, size, OUT);
+                    OUT.flush();
+                }
+            }
+        }
+    }
+
+    private CompressionOptions getCompressionOptions(){
+        return CompressionUtility.getCompressionOptions(exchange);
+    }
+
+    // only compress if client accepts it and if compressing would be worthwhile
+    private boolean compress(final long length, final CompressionOptions options){
+        final Headers headers = exchange.getResponseHeaders();
+        if(length < options.threshold || !CompressionUtility.isCompressible(headers))
+            return false;
+        headers.add("Vary", "Accept-Encoding");
+        return CompressionUtility.acceptsGzip(exchange.getRequestHeaders());
+    }
+
+    // writes the file to the stream in chunks without reading the entire file into memory
+    private static void transfer(final FileChannel IN, final long size, final OutputStream OUT) throws IOException {
+        final WritableByteChannel channel = Channels.newChannel(OUT);
+        long position = 0;
+        while(position < size){
+            final long transferred = IN.transferTo(position, size - position, channel);
+            if(transferred <= 0) break; // file was truncated
+            position += transferred;
+        }
     }
 
     //
 
     @Override
     public synchronized final void close(){
+        readBody(); // request body is discarded once closed
         try{
             exchange.getResponseBody().close();
         }catch(final IOException ignored){
         }finally{
             exchange.close();
+            deleteMultipartFiles();
         }
     }
 
@@ -24,6 +24,7 @@ import dev.katsute.simplehttpserver.handler.RootHandler;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.Objects;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
@@ -97,6 +98,8 @@ import java.util.concurrent.Executors;
  * To process a fixed amount of threads you can use {@link Executors#newFixedThreadPool(int)}.
  * <br>
  * To process an unlimited amount of threads you can use {@link Executors#newCachedThreadPool()}.
+ * <br>
+ * To run handlers on virtual threads, or on a bounded pool before Java 21, create the server with {@link #create(int, int, ExecutorOptions)}.
  * <h2>Requests are still not being processed in parallel</h2>
  * Requests to the same context may not run in parallel for a user that is accessing the same page more than once. This issue is caused by the browser, where it will not send duplicate requests to the server at the same time.
  * <br>
@@ -106,7 +109,7 @@ import java.util.concurrent.Executors;
  *
  * @see HttpServer
  * @since 5.0.0
- * @version 5.0.0
+ * @version 5.1.0
  * @author Katsute
  */
 public abstract class SimpleHttpServer extends HttpServer implements HttpServerExtensions {
@@ -163,6 +166,25 @@ public abstract class SimpleHttpServer extends HttpServer implements HttpServerE
         return new SimpleHttpServerImpl(port, backlog);
     }
 
+    /**
+     * Creates an http server bounded to a port that runs handlers on a {@link ServerExecutor}. The executor is shut down when the server is stopped.
+     *
+     * @param port to bind to
+     * @param backlog maximum amount of inbound connections at any given time
+     * @param options executor options
+     * @return http server
+     * @throws IOException IO exception
+     * @throws java.net.BindException if server could not be bounded
+     *
+     * @see ExecutorOptions
+     * @see ServerExecutor
+     * @see #create(int, int)
+     * @since 5.1.0
+     */
+    public static SimpleHttpServer create(final int port, final int backlog, final ExecutorOptions options) throws IOException {
+        return new SimpleHttpServerImpl(port, backlog, Objects.requireNonNull(options));
+    }
+
     //
 
     /**
@@ -32,11 +32,22 @@ final class SimpleHttpServerImpl extends SimpleHttpServer {
 
     private HttpSessionHandler sessionHandler;
 
+    private CompressionOptions compressionOptions;
+
+    private final ServerExecutor executor; // null if not created by the server
+
     private final Map<HttpContext,HttpHandler> contexts = Collections.synchronizedMap(new HashMap<>());
 
     SimpleHttpServerImpl(final Integer port, final Integer backlog) throws IOException{
+        this(port, backlog, null);
+    }
+
+    SimpleHttpServerImpl(final Integer port, final Integer backlog, final ExecutorOptions options) throws IOException{
         if(port != null)
             server.bind(new InetSocketAddress(port), backlog != null ? backlog : 0);
+        executor = options != null ? ServerExecutor.create(options) : null;
+        if(executor != null)
+            server.setExecutor(executor);
     }
 
     private void handle(final HttpExchange exchange){
@@ -113,6 +124,25 @@ final class SimpleHttpServerImpl extends SimpleHttpServer {
         this.sessionHandler = sessionHandler;
     }
 
+    @Override
+    public synchronized final CompressionOptions getCompressionOptions(){
+        return compressionOptions;
+    }
+
+    @Override
+    public synchronized final void setCompressionOptions(final CompressionOptions compressionOptions){
+        this.compressionOptions = compressionOptions == null ? null : new CompressionOptions(compressionOptions); // dereference to prevent modification
+        for(final HttpContext hc : contexts.keySet())
+            setCompressionOptions(hc);
+    }
+
+    private void setCompressionOptions(final HttpContext context){ // exchanges read compression options from context
+        if(compressionOptions != null)
+            context.getAttributes().put(CompressionUtility.ATTRIBUTE, compressionOptions);
+        else
+            context.getAttributes().remove(CompressionUtility.ATTRIBUTE);
+    }
+
     @Override
     public final HttpSession getSession(final HttpExchange exchange){
         return sessionHandler != null ? sessionHandler.getSession(Objects.requireNonNull(exchange) instanceof SimpleHttpExchange ? ((SimpleHttpExchange) exchange).getHttpExchange() : exchange) : null;
@@ -136,12 +166,15 @@ final class SimpleHttpServerImpl extends SimpleHttpServer {
         final HttpContext hc = server.createContext(ct);
 
         final HttpHandler wrapper = exchange -> {
+            if(ServerExecutor.reject(exchange)) return; // over capacity
             handle(exchange);
             handler.handle(exchange);
         };
 
         hc.setHandler(wrapper);
 
+        setCompressionOptions(hc);
+
         contexts.put(hc, handler);
 
         return hc;
@@ -228,6 +261,8 @@ final class SimpleHttpServerImpl extends SimpleHttpServer {
     @Override
     public synchronized final void stop(final int delay){
         server.stop(delay);
+        if(executor != null)
+            executor.shutdown();
     }
 
 // endregion
@@ -237,6 +272,7 @@ final class SimpleHttpServerImpl extends SimpleHttpServer {
         return "SimpleHttpServer{" +
                "server=" + server +
                ", sessionHandler=" + sessionHandler +
+               ", compressionOptions=" + compressionOptions +
                ", contexts=" + contexts +
                '}';
     }
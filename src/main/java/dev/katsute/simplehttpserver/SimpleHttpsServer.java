@@ -22,6 +22,7 @@ import com.sun.net.httpserver.HttpsServer;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.Objects;
 
 /**
  * A {@link HttpsServer} with additional extensions to simplify usage. See {@link SimpleHttpServer} for setup documentation.
@@ -29,7 +30,7 @@ import java.net.InetSocketAddress;
  * @see SimpleHttpServer
  * @see HttpsServer
  * @since 5.0.0
- * @version 5.0.0
+ * @version 5.1.0
  * @author Katsute
  */
 public abstract class SimpleHttpsServer extends HttpsServer implements HttpServerExtensions {
@@ -86,6 +87,25 @@ public abstract class SimpleHttpsServer extends HttpsServer implements HttpServe
         return new SimpleHttpsServerImpl(port, backlog);
     }
 
+    /**
+     * Creates an https server bounded to a port that runs handlers on a {@link ServerExecutor}. The executor is shut down when the server is stopped.
+     *
+     * @param port to bind to
+     * @param backlog maximum amount of inbound connections at any given time
+     * @param options executor options
+     * @return https server
+     * @throws IOException IO exception
+     * @throws java.net.BindException if server could not be bounded
+     *
+     * @see ExecutorOptions
+     * @see ServerExecutor
+     * @see #create(int, int)
+     * @since 5.1.0
+     */
+    public static SimpleHttpsServer create(final int port, final int backlog, final ExecutorOptions options) throws IOException {
+        return new SimpleHttpsServerImpl(port, backlog, Objects.requireNonNull(options));
+    }
+
     //
 
     /**
@@ -32,11 +32,22 @@ final class SimpleHttpsServerImpl extends SimpleHttpsServer {
 
     private HttpSessionHandler sessionHandler;
 
+    private CompressionOptions compressionOptions;
+
+    private final ServerExecutor executor; // null if not created by the server
+
     private final Map<HttpContext,HttpHandler> contexts = Collections.synchronizedMap(new HashMap<>());
 
     SimpleHttpsServerImpl(final Integer port, final Integer backlog) throws IOException{
+        this(port, backlog, null);
+    }
+
+    SimpleHttpsServerImpl(final Integer port, final Integer backlog, final ExecutorOptions options) throws IOException{
         if(port != null)
             server.bind(new InetSocketAddress(port), backlog != null ? backlog : 0);
+        executor = options != null ? ServerExecutor.create(options) : null;
+        if(executor != null)
+            server.setExecutor(executor);
     }
 
     private void handle(final HttpExchange exchange){
@@ -125,6 +136,25 @@ final class SimpleHttpsServerImpl extends SimpleHttpsServer {
         this.sessionHandler = sessionHandler;
     }
 
+    @Override
+    public synchronized final CompressionOptions getCompressionOptions(){
+        return compressionOptions;
+    }
+
+    @Override
+    public synchronized final void setCompressionOptions(final CompressionOptions compressionOptions){
+        this.compressionOptions = compressionOptions == null ? null : new CompressionOptions(compressionOptions); // dereference to prevent modification
+        for(final HttpContext hc : contexts.keySet())
+            setCompressionOptions(hc);
+    }
+
+    private void setCompressionOptions(final HttpContext context){ // exchanges read compression options from context
+        if(compressionOptions != null)
+            context.getAttributes().put(CompressionUtility.ATTRIBUTE, compressionOptions);
+        else
+            context.getAttributes().remove(CompressionUtility.ATTRIBUTE);
+    }
+
     @Override
     public final HttpSession getSession(final HttpExchange exchange){
         return sessionHandler != null ? sessionHandler.getSession(Objects.requireNonNull(exchange) instanceof SimpleHttpExchange ? ((SimpleHttpExchange) exchange).getHttpExchange() : exchange) : null;
@@ -147,13 +177,15 @@ final class SimpleHttpsServerImpl extends SimpleHttpsServer {
 
         final HttpContext hc = server.createContext(ct);
 
-        if(sessionHandler != null){
-            final HttpHandler wrapper = exchange -> {
-                handle(exchange);
-                handler.handle(exchange);
-            };
-            hc.setHandler(wrapper);
-        }
+        final HttpHandler wrapper = exchange -> {
+            if(ServerExecutor.reject(exchange)) return; // over capacity
+            handle(exchange);
+            handler.handle(exchange);
+        };
+
+        hc.setHandler(wrapper);
+
+        setCompressionOptions(hc);
 
         contexts.put(hc, handler);
 
@@ -241,6 +273,8 @@ final class SimpleHttpsServerImpl extends SimpleHttpsServer {
     @Override
     public synchronized final void stop(final int delay){
         server.stop(delay);
+        if(executor != null)
+            executor.shutdown();
     }
 
 // endregion
@@ -250,6 +284,7 @@ final class SimpleHttpsServerImpl extends SimpleHttpsServer {
         return "SimpleHttpsServer{" +
                "server=" + server +
                ", sessionHandler=" + sessionHandler +
+               ", compressionOptions=" + compressionOptions +
                ", contexts=" + contexts +
                '}';
     }
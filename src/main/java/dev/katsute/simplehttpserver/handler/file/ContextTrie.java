@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver.handler.file;
+
+import java.util.Arrays;
+
+// segment trie of contexts used for longest prefix matching, lookups are lock and allocation free
+final class ContextTrie<V> {
+
+    private final Node<V> root = new Node<>("", 0);
+
+    //
+
+    final synchronized void put(final String context, final V value){
+        Node<V> node = root;
+        for(final String segment : context.split("/"))
+            if(!segment.isEmpty())
+                node = node.getOrCreate(segment);
+        node.entry = new Entry<>(context, value);
+    }
+
+    final synchronized void remove(final String context){
+        remove(root, context.split("/"), 0);
+    }
+
+    // returns true if the node is empty and can be removed from its parent
+    private static <V> boolean remove(final Node<V> node, final String[] segments, final int index){
+        int i = index;
+        while(i < segments.length && segments[i].isEmpty()) i++;
+
+        if(i == segments.length)
+            node.entry = null;
+        else{
+            final Node<V> child = node.get(segments[i], 0, segments[i].length());
+            if(child != null && remove(child, segments, i + 1))
+                node.removeChild(child);
+        }
+        return node.entry == null && node.children.length == 0;
+    }
+
+    //
+
+    // longest matching context, path segments must match entirely
+    final Entry<V> find(final String context){
+        final int len = context.length();
+        Node<V> node = root;
+        Entry<V> match = root.entry;
+        int start = 0;
+        while(true){
+            while(start < len && context.charAt(start) == '/') start++;
+            if(start >= len) break;
+            int end = context.indexOf('/', start);
+            if(end == -1) end = len;
+
+            if((node = node.get(context, start, end)) == null) break;
+
+            final Entry<V> entry = node.entry;
+            if(entry != null)
+                match = entry;
+            start = end;
+        }
+        return match;
+    }
+
+    //
+
+    static final class Entry<V> {
+
+        final String context;
+        final V value;
+
+        private Entry(final String context, final V value){
+            this.context = context;
+            this.value   = value;
+        }
+
+    }
+
+    private static final class Node<V> {
+
+        @SuppressWarnings("rawtypes")
+        private static final Node[] empty = new Node[0];
+
+        private final String segment;
+        private final int hash;
+
+        private volatile Entry<V> entry;
+        @SuppressWarnings("unchecked")
+        private volatile Node<V>[] children = empty; // sorted by hash, copied on write
+
+        private Node(final String segment, final int hash){
+            this.segment = segment;
+            this.hash    = hash;
+        }
+
+        private Node<V> get(final String context, final int start, final int end){
+            final Node<V>[] children = this.children;
+            final int hash = hash(context, start, end);
+            final int len  = end - start;
+
+            int lo = 0, hi = children.length - 1;
+            while(lo <= hi){
+                final int mid = (lo + hi) >>> 1;
+                final int h = children[mid].hash;
+                if(h < hash)
+                    lo = mid + 1;
+                else if(h > hash)
+                    hi = mid - 1;
+                else{ // check all nodes with the same hash
+                    int i = mid;
+                    while(i > 0 && children[i - 1].hash == hash) i--;
+                    for(; i < children.length && children[i].hash == hash; i++){
+                        final String segment = children[i].segment;
+                        if(segment.length() == len && context.regionMatches(start, segment, 0, len))
+                            return children[i];
+                    }
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        private Node<V> getOrCreate(final String segment){
+            final Node<V> existing = get(segment, 0, segment.length());
+            if(existing != null) return existing;
+
+            final Node<V> node = new Node<>(segment, hash(segment, 0, segment.length()));
+            final Node<V>[] children = this.children;
+            int i = 0;
+            while(i < children.length && children[i].hash <= node.hash) i++;
+
+            final Node<V>[] copy = Arrays.copyOf(children, children.length + 1);
+            System.arraycopy(children, i, copy, i + 1, children.length - i);
+            copy[i] = node;
+            this.children = copy;
+            return node;
+        }
+
+        private void removeChild(final Node<V> node){
+            final Node<V>[] children = this.children;
+            for(int i = 0; i < children.length; i++)
+                if(children[i] == node){
+                    final Node<V>[] copy = Arrays.copyOf(children, children.length - 1);
+                    System.arraycopy(children, i + 1, copy, i, children.length - i - 1);
+                    this.children = copy;
+                    return;
+                }
+        }
+
+        private static int hash(final String s, final int start, final int end){
+            int h = 0;
+            for(int i = start; i < end; i++)
+                h = 31 * h + s.charAt(i);
+            return h;
+        }
+
+    }
+
+}
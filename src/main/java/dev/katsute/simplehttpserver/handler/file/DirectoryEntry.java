@@ -20,9 +20,8 @@ package dev.katsute.simplehttpserver.handler.file;
 
 import java.io.*;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
 
 import static dev.katsute.simplehttpserver.handler.file.FileOptions.FileLoadingOption.*;
 
@@ -39,9 +38,28 @@ final class DirectoryEntry {
 
     private final Map<String,FileEntry> files = new ConcurrentHashMap<>(); // non LIVE only
 
+    // relative directory (lowercase) -> adapted file name (lowercase) -> file, kept current by the watch service
+    private final Map<String,Map<String,File>> index = new ConcurrentHashMap<>();
+    private final Map<String,Path> directories = new ConcurrentHashMap<>(); // relative directory (lowercase) -> directory
+    private final Map<Path,WatchKey> watching = new ConcurrentHashMap<>();
+    private volatile boolean indexed = true; // false if LIVE or if any directory could not be watched
+    private volatile boolean warm; // false while loading asynchronously
+    private volatile boolean closed = false;
+    private final CompletableFuture<Void> loaded;
+    private final WatchUtility.Listener listener = this::onEvent;
+
+    // relative directory (lowercase) -> rendered listing, cleared when the directory changes
+    private final Map<String,Listing> listings = new ConcurrentHashMap<>();
+    private long generation = 0; // guarded by listings
+
     //
 
     DirectoryEntry(final File directory, final FileAdapter adapter, final FileOptions options){
+        this(directory, adapter, options, false);
+    }
+
+    // if async, files are served as LIVE until loaded
+    DirectoryEntry(final File directory, final FileAdapter adapter, final FileOptions options, final boolean async){
         this.file     = directory;
         this.path     = directory.toPath();
         this.abs      = directory.getAbsolutePath();
@@ -49,54 +67,235 @@ final class DirectoryEntry {
         this.adapter  = adapter;
         this.options  = options;
 
-        if(this.options.loading != LIVE){
-            if(!options.walk){
-                final File[] files = directory.listFiles(File::isFile);
-                if(files != null)
-                    for(final File f : files)
-                        addFile(f);
+        final boolean load = options.loading != LIVE;
+        if(!load){ // LIVE always looks up files on disk, so new files are served right away
+            this.warm    = true;
+            this.indexed = false;
+            this.loaded  = CompletableFuture.completedFuture(null);
+        }else if(!async){
+            this.warm   = true;
+            this.loaded = index(path, load);
+            try{
+                loaded.join();
+            }catch(final CompletionException e){
+                close();
+                if(options.walk)
+                    throw e.getCause() instanceof UncheckedIOException ? (UncheckedIOException) e.getCause() : e;
+                indexed = false;
+            }
+        }else{
+            this.warm   = false;
+            this.loaded = ScheduleUtility.supplyAsync(() -> index(path, load)).thenCompose(f -> f).thenRun(() -> {
+                warm = true;
+                if(closed) // removed while loading
+                    files.values().forEach(FileEntry::close);
+            });
+        }
+    }
+
+    // watch and index a directory, files are loaded and subdirectories indexed in parallel
+    private CompletableFuture<Void> index(final Path directory, final boolean load){
+        try{
+            watching.put(directory, WatchUtility.register(directory, listener)); // register before listing so no changes are missed
+        }catch(final IOException | UnsupportedOperationException ignored){
+            indexed = false;
+        }
+
+        final Map<String,File> names = new ConcurrentHashMap<>();
+        index.put(getKey(directory), names);
+        directories.put(getKey(directory), directory);
+
+        final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        try(final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)){
+            for(final Path p : stream){
+                if(Files.isDirectory(p)){
+                    if(options.walk)
+                        tasks.add(ScheduleUtility.supplyAsync(() -> index(p, load)).thenCompose(f -> f));
+                }else if(Files.isRegularFile(p)){
+                    final File f = p.toFile();
+                    names.putIfAbsent(adapter.getName(f).toLowerCase(), f);
+                    if(load)
+                        tasks.add(ScheduleUtility.runAsync(() -> files.put(getContext(directory, f), newFileEntry(f))));
+                }
+            }
+        }catch(final IOException e){
+            final CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new UncheckedIOException(e));
+            return failed;
+        }
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void onEvent(final Path directory, final WatchEvent.Kind<?> kind, final Path p){
+        synchronized(listings){
+            generation++;
+            listings.remove(getKey(directory));
+        }
+        if(kind == StandardWatchEventKinds.OVERFLOW){ // events were lost, rebuild directory
+            index(directory, false);
+        }else if(kind == StandardWatchEventKinds.ENTRY_CREATE){
+            if(Files.isDirectory(p)){
+                if(options.walk)
+                    index(p, false);
             }else{
-                try{
-                    //noinspection Convert2Diamond
-                    Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-                        @Override
-                        public final FileVisitResult visitFile(final Path p, final BasicFileAttributes attrs){
-                            addDirectoryFile(p.toFile());
-                            return FileVisitResult.CONTINUE;
-                        }
-                    });
-                }catch(final IOException e){
-                    throw new UncheckedIOException(e);
+                final File f = p.toFile();
+                index.computeIfAbsent(getKey(directory), k -> new ConcurrentHashMap<>()).putIfAbsent(adapter.getName(f).toLowerCase(), f);
+                invalidate(directory, f);
+            }
+        }else if(kind == StandardWatchEventKinds.ENTRY_MODIFY){
+            invalidate(directory, p.toFile());
+        }else if(kind == StandardWatchEventKinds.ENTRY_DELETE){
+            final Map<String,File> names = index.get(getKey(directory));
+            if(names != null)
+                names.values().remove(p.toFile());
+            if(options.loading == WATCH){
+                remove(getContext(directory, p.toFile()));
+                invalidate(directory, p.toFile()); // precompressed file
+            }
+            if(options.walk && watching.containsKey(p)){ // removed subdirectory
+                final String key = getKey(p);
+                index.keySet().removeIf(k -> k.equals(key) || k.startsWith(key + '/'));
+                directories.keySet().removeIf(k -> k.equals(key) || k.startsWith(key + '/'));
+                listings.keySet().removeIf(k -> k.equals(key) || k.startsWith(key + '/'));
+                if(options.loading == WATCH){
+                    final String context = ContextUtility.getContext(path.relativize(p).toString(), true, true);
+                    files.keySet().stream().filter(k -> k.startsWith(context)).forEach(this::remove);
                 }
+                watching.keySet().removeIf(w -> {
+                    if(!w.startsWith(p)) return false;
+                    WatchUtility.cancel(watching.get(w), listener);
+                    return true;
+                });
             }
         }
     }
 
-    // top level files
-    private void addFile(final File file){
-        files.put(
-            ContextUtility.getContext(adapter.getName(file), true, false),
-            new FileEntry(file, adapter, options)
-        );
+    // reload file on next request, or the file it was precompressed from
+    private void invalidate(final Path directory, final File file){
+        if(options.loading == WATCH){
+            final FileEntry entry = files.get(getContext(directory, file));
+            if(entry != null)
+                entry.invalidate();
+            final String name = file.getName();
+            if(options.compress && (name.endsWith(".gz") || name.endsWith(".br"))){
+                final FileEntry source = files.get(getContext(directory, new File(file.getParentFile(), name.substring(0, name.length() - 3))));
+                if(source != null)
+                    source.invalidate();
+            }
+        }
+    }
+
+    private String getKey(final Path directory){
+        return ContextUtility.getContext(path.relativize(directory).toString(), true, false).toLowerCase();
     }
 
-    // file in sub directories
-    private void addDirectoryFile(final File file){
-        files.put(
-            ContextUtility.joinContexts(true, false, path.relativize(file.toPath().getParent()).toString(), adapter.getName(file)),
-            new FileEntry(file, adapter, options)
-        );
+    private String getContext(final Path directory, final File file){
+        return ContextUtility.joinContexts(true, false, path.relativize(directory).toString(), adapter.getName(file));
+    }
+
+    private FileEntry newFileEntry(final File file){
+        final FileEntry entry = new FileEntry(file, adapter, options);
+        if(options.loading == WATCH && indexed)
+            entry.setWatched();
+        return entry;
+    }
+
+    private void remove(final String context){
+        final FileEntry entry = files.remove(context);
+        if(entry != null)
+            entry.close();
+    }
+
+    // stop watching this directory and release its files
+    final void close(){
+        closed = true;
+        watching.values().forEach(key -> WatchUtility.cancel(key, listener));
+        watching.clear();
+        files.values().forEach(FileEntry::close);
+        listings.clear();
     }
 
     //
 
-    final Map<String,FileEntry> getFiles(){
-        return new HashMap<>(files); // dereference
+    final FileOptions getOptions(){
+        return options;
+    }
+
+    final CompletableFuture<Void> getLoaded(){
+        return loaded;
     }
 
-    @SuppressWarnings("SpellCheckingInspection")
     final File getFile(final String path){ // file names are case insensitive
         final String relative = ContextUtility.getContext(path, true, false);
+        if(!indexed || !warm) return listFile(relative);
+
+        final int i = relative.lastIndexOf('/');
+        if(i != 0 && !options.walk) return null; // only top level files
+        final Map<String,File> names = index.get(i == 0 ? "/" : relative.substring(0, i).toLowerCase());
+        return names != null ? names.get(relative.substring(i + 1).toLowerCase()) : null;
+    }
+
+    // returns null if the path is not a directory that can be served
+    final Path getDirectory(final String path){
+        final String relative = ContextUtility.getContext(path, true, false);
+        if(!relative.equals("/") && !options.walk) return null; // only top level directory
+        if(indexed && warm) return directories.get(relative.toLowerCase());
+
+        final Path root = this.path.toAbsolutePath().normalize();
+        final Path directory = Paths.get(abs, relative).toAbsolutePath().normalize();
+        return directory.startsWith(root) && Files.isDirectory(directory) ? this.path.resolve(root.relativize(directory)) : null;
+    }
+
+    // returns the adapted name of the index file if the path is a directory that has one
+    final String getIndex(final String path){
+        if(options.index == null || getDirectory(path) == null) return null;
+        final String index = ContextUtility.joinContexts(true, false, path, options.index);
+        return getFile(index) != null ? index : null;
+    }
+
+    // returns null if the path is not a directory, listings are only rendered again when the directory changes
+    final byte[] getListing(final String path, final String context, final boolean json){
+        final Path directory = getDirectory(path);
+        if(directory == null) return null;
+
+        final String key     = getKey(directory);
+        final boolean cached = indexed && warm; // directory changes are reported by the watch service
+        final long modified  = cached ? 0 : directory.toFile().lastModified();
+
+        Listing listing = listings.get(key);
+        if(listing == null || !cached && listing.modified != modified){
+            final long generation;
+            synchronized(listings){
+                generation = this.generation;
+            }
+            final List<ListingUtility.Item> items = new ArrayList<>();
+            try(final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)){
+                for(final Path p : stream){
+                    final File f = p.toFile();
+                    if(Files.isDirectory(p)){
+                        if(options.walk)
+                            items.add(new ListingUtility.Item(f.getName(), true, 0, f.lastModified()));
+                    }else if(Files.isRegularFile(p))
+                        items.add(new ListingUtility.Item(adapter.getName(f), false, f.length(), f.lastModified()));
+                }
+            }catch(final IOException ignored){
+                return null;
+            }
+            items.sort((a, b) -> a.directory != b.directory ? a.directory ? -1 : 1 : a.name.compareToIgnoreCase(b.name));
+            listing = new Listing(modified, key.equals("/"), items);
+            synchronized(listings){
+                if(generation == this.generation) // directory did not change while listing
+                    listings.put(key, listing);
+            }
+        }
+        return json
+            ? listing.getJson()
+            : listing.getHtml(ContextUtility.joinContexts(true, true, context, this.path.relativize(directory).toString()));
+    }
+
+    // used if LIVE or if the directory can not be watched
+    @SuppressWarnings("SpellCheckingInspection")
+    private File listFile(final String relative){
         final File parentFile = new File(abs + relative).getParentFile();
         final String pabs     = parentFile.getAbsolutePath();
 
@@ -110,23 +309,25 @@ final class DirectoryEntry {
         final File[] parentFiles = parentFile.listFiles();
         if(parentFiles != null)
             for(final File file : parentFiles)
-                if(fileName.equalsIgnoreCase(adapter.getName(file)))
+                if(file.isFile() && fileName.equalsIgnoreCase(adapter.getName(file)))
                     return file;
         return null;
     }
 
     final FileEntry getFileEntry(final String path){
+        if(!warm) return null; // served as LIVE until loaded
         final String context  = ContextUtility.getContext(path, true, false);
         final FileEntry entry = files.get(context);
+        final boolean watched = options.loading == WATCH && indexed; // index and files are kept current by the watch service
         if(entry == null){ // add new entry if not already added and file exists
             final File file = getFile(path);
-            return file != null && file.exists()
+            return file != null && (watched || file.exists())
                 ? options.loading != LIVE // only add to files if not LIVE
-                    ? files.put(context, new FileEntry(file, adapter, options))
+                    ? files.computeIfAbsent(context, k -> newFileEntry(file))
                     : new FileEntry(file, adapter, options)
                 : null;
-        }else if(!entry.getFile().exists()){ // remove entry if file no longer exists
-            files.remove(context);
+        }else if(!watched && !entry.getFile().exists()){ // remove entry if file no longer exists
+            remove(context);
             return null;
         }else{ // return existing if exists
             return entry;
@@ -134,7 +335,7 @@ final class DirectoryEntry {
     }
 
     final byte[] getBytes(final String path){
-        if(options.loading != LIVE ){ // find preloaded bytes
+        if(options.loading != LIVE && warm){ // find preloaded bytes
             final FileEntry entry = getFileEntry(path);
             return entry != null ? entry.getBytes() : null;
         }else{
@@ -149,6 +350,36 @@ final class DirectoryEntry {
 
     //
 
+    private static final class Listing {
+
+        private final long modified;
+        private final boolean root;
+        private final List<ListingUtility.Item> items;
+
+        private volatile byte[] json;
+        private final Map<String,byte[]> html = new ConcurrentHashMap<>(); // by the context the directory was requested from
+
+        Listing(final long modified, final boolean root, final List<ListingUtility.Item> items){
+            this.modified = modified;
+            this.root     = root;
+            this.items    = items;
+        }
+
+        final byte[] getJson(){
+            byte[] json = this.json;
+            if(json == null)
+                this.json = json = ListingUtility.json(items);
+            return json;
+        }
+
+        final byte[] getHtml(final String base){
+            return html.computeIfAbsent(base, k -> ListingUtility.html(base, !root, items));
+        }
+
+    }
+
+    //
+
     @Override
     public String toString(){
         return "DirectoryEntry{" +
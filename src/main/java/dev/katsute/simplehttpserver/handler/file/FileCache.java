@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver.handler.file;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The memory budget shared by every {@link FileHandler} for file content loaded with {@link FileOptions.FileLoadingOption#PRELOAD}, {@link FileOptions.FileLoadingOption#MODIFY}, {@link FileOptions.FileLoadingOption#WATCH}, and {@link FileOptions.FileLoadingOption#CACHE}.
+ * <br>
+ * There is no budget by default, so files stay loaded as before. Once a budget is set with {@link #setBudget(long)}, the least recently used files are evicted when it is exceeded and read again the next time they are requested, including files loaded with {@link FileOptions.FileLoadingOption#PRELOAD}. Files larger than {@link #getMaxEntrySize()} are never kept and are read on every request.
+ *
+ * @see FileHandler
+ * @since 5.1.0
+ * @version 5.1.0
+ * @author Katsute
+ */
+public final class FileCache {
+
+    private static final FileCache cache = new FileCache();
+
+    /**
+     * Returns the file cache shared by all file handlers.
+     *
+     * @return file cache
+     *
+     * @since 5.1.0
+     */
+    public static FileCache getCache(){
+        return cache;
+    }
+
+    //
+
+    private static final class Charge {
+
+        private final FileEntry.Content content;
+        private long size;
+
+        private Charge(final FileEntry.Content content){
+            this.content = content;
+            this.size    = content.size();
+        }
+
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<FileEntry,Charge> entries = new LinkedHashMap<>(16, 0.75f, true); // access order
+
+    private volatile long budget       = Long.MAX_VALUE;
+    private volatile long maxEntrySize = Long.MAX_VALUE;
+    private long size = 0;
+
+    private final LongAdder hits      = new LongAdder();
+    private final LongAdder misses    = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private FileCache(){ }
+
+    //
+
+    // returns false if the content is too large to keep
+    final boolean admit(final FileEntry entry, final FileEntry.Content content){
+        misses.increment();
+        lock.lock();
+        try{
+            final Charge previous = entries.remove(entry);
+            if(previous != null)
+                size -= previous.size;
+
+            final Charge charge = new Charge(content);
+            if(charge.size > maxEntrySize || charge.size > budget)
+                return false;
+
+            entries.put(entry, charge);
+            size += charge.size;
+            evict();
+            return true;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    // recency is best effort, accesses under contention are not recorded
+    final void touch(final FileEntry entry){
+        hits.increment();
+        if(lock.tryLock())
+            try{
+                final Charge charge = entries.get(entry);
+                if(charge != null){
+                    final long size = charge.content.size(); // compressed variants are created lazily
+                    if(size != charge.size){
+                        this.size += size - charge.size;
+                        charge.size = size;
+                        evict();
+                    }
+                }
+            }finally{
+                lock.unlock();
+            }
+    }
+
+    final void remove(final FileEntry entry){
+        lock.lock();
+        try{
+            final Charge charge = entries.remove(entry);
+            if(charge != null)
+                size -= charge.size;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    private void evict(){ // lock must be held
+        final Iterator<Map.Entry<FileEntry,Charge>> iterator = entries.entrySet().iterator();
+        while(size > budget && iterator.hasNext()){
+            final Map.Entry<FileEntry,Charge> eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getValue().size;
+            eldest.getKey().evict(eldest.getValue().content);
+            evictions.increment();
+        }
+    }
+
+    //
+
+    /**
+     * Returns the maximum number of bytes kept across all file handlers. By default there is no budget.
+     *
+     * @return budget in bytes
+     *
+     * @see #setBudget(long)
+     * @since 5.1.0
+     */
+    public final long getBudget(){
+        return budget;
+    }
+
+    /**
+     * Sets the maximum number of bytes kept across all file handlers. Files are evicted immediately if the cache is larger than the new budget. Evicted files, including {@link FileOptions.FileLoadingOption#PRELOAD} files, are read from disk again when next requested.
+     *
+     * @param budget budget in bytes
+     *
+     * @see #getBudget()
+     * @since 5.1.0
+     */
+    public final void setBudget(final long budget){
+        lock.lock();
+        try{
+            this.budget = budget;
+            evict();
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the maximum size of a single file that can be kept.
+     *
+     * @return max entry size in bytes
+     *
+     * @see #setMaxEntrySize(long)
+     * @since 5.1.0
+     */
+    public final long getMaxEntrySize(){
+        return maxEntrySize;
+    }
+
+    /**
+     * Sets the maximum size of a single file that can be kept. Files larger than this are read on every request.
+     *
+     * @param maxEntrySize max entry size in bytes
+     *
+     * @see #getMaxEntrySize()
+     * @since 5.1.0
+     */
+    public final void setMaxEntrySize(final long maxEntrySize){
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * Returns the number of bytes currently kept.
+     *
+     * @return size in bytes
+     *
+     * @since 5.1.0
+     */
+    public final long getSize(){
+        lock.lock();
+        try{
+            return size;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns how many times file content was served from memory.
+     *
+     * @return hits
+     *
+     * @since 5.1.0
+     */
+    public final long getHits(){
+        return hits.sum();
+    }
+
+    /**
+     * Returns how many times file content had to be read.
+     *
+     * @return misses
+     *
+     * @since 5.1.0
+     */
+    public final long getMisses(){
+        return misses.sum();
+    }
+
+    /**
+     * Returns how many files were evicted to stay within the budget.
+     *
+     * @return evictions
+     *
+     * @since 5.1.0
+     */
+    public final long getEvictions(){
+        return evictions.sum();
+    }
+
+    //
+
+    @Override
+    public String toString(){
+        return "FileCache{" +
+               "budget=" + budget +
+               ", maxEntrySize=" + maxEntrySize +
+               ", size=" + getSize() +
+               ", hits=" + getHits() +
+               ", misses=" + getMisses() +
+               ", evictions=" + getEvictions() +
+               '}';
+    }
+
+}
@@ -18,11 +18,19 @@
 
 package dev.katsute.simplehttpserver.handler.file;
 
-import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.Arrays;
+import dev.katsute.simplehttpserver.CompressionOptions;
+import dev.katsute.simplehttpserver.CompressionUtility;
+
+import java.io.*;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static dev.katsute.simplehttpserver.handler.file.FileOptions.FileLoadingOption.*;
 
@@ -32,14 +40,26 @@ final class FileEntry {
     private final Path path;
     private final FileAdapter adapter;
     private final FileOptions options;
+    private final String type; // resolved once from the adapted name
+    private final String cacheControl;
+    private final File gz, br; // precompressed files, only used with the default adapter
 
     //
 
-    private byte[] bytes = null;
+    private static final FileCache cache = FileCache.getCache();
+
+    private final AtomicReference<Content> content = new AtomicReference<>(); // null if not loaded or evicted
 
     private final AtomicLong lastModified = new AtomicLong(); // modify only
 
     private final AtomicLong expiry = new AtomicLong(-1); // cache only
+    private ScheduledFuture<?> sweep = null; // cache only
+
+    private final AtomicReference<CompletableFuture<Content>> reloading = new AtomicReference<>(); // single flight reload
+
+    private volatile boolean watched = false, stale = false; // watch only
+    private WatchKey key = null; // watch only, if added as a single file
+    private final WatchUtility.Listener listener = this::onEvent;
 
     //
 
@@ -48,40 +68,172 @@ final class FileEntry {
         this.path    = file.toPath();
         this.adapter = fileAdapter;
         this.options = options;
+        this.type    = MimeUtility.getType(adapter.getName(file));
+        this.cacheControl = FileRequestUtility.getCacheControl(options, adapter.getName(file));
 
-        if(options.loading == PRELOAD || options.loading == MODIFY){
-            try{
-                bytes = adapter.getBytes(file, Files.readAllBytes(path));
-            }catch(final Throwable ignored){
-                bytes = null;
-            }finally{
-                if(options.loading == MODIFY)
-                    lastModified.set(file.lastModified());
-            }
+        final boolean siblings = options.compress && adapter == FileHandler.defaultAdapter; // adapted content can differ from precompressed files
+        this.gz = siblings ? new File(file.getPath() + ".gz") : null;
+        this.br = siblings ? new File(file.getPath() + ".br") : null;
+
+        if(!isStreaming(adapter) && (options.loading == PRELOAD || options.loading == MODIFY || options.loading == WATCH)){
+            final long modified = getModified(); // read before bytes so a concurrent change is seen as modified
+            store(load());
+            if(options.loading != PRELOAD)
+                lastModified.set(modified);
         }
     }
 
+    // adapted on every request, so nothing is kept in memory
+    static boolean isStreaming(final FileAdapter adapter){
+        return adapter instanceof StreamingFileAdapter && !((StreamingFileAdapter) adapter).isCacheable();
+    }
+
+    // keep content if the cache has room for it
+    private Content store(final Content content){
+        this.content.set(content);
+        if(content != null && !cache.admit(this, content))
+            this.content.compareAndSet(content, null);
+        return content;
+    }
+
+    // called by the cache, only clears the content that was evicted
+    final void evict(final Content content){
+        this.content.compareAndSet(content, null);
+    }
+
+    private Content load(){
+        try{
+            final long modified = file.lastModified(); // read before bytes so a concurrent change is seen as modified
+            if(options.offHeap && options.loading != LIVE && adapter == FileHandler.defaultAdapter)
+                return new Content(readDirect(), modified, type, cacheControl);
+            final byte[] bytes  = adapter.getBytes(file, Files.readAllBytes(path));
+            if(options.offHeap && options.loading != LIVE)
+                return new Content(toDirect(bytes), modified, type, cacheControl);
+            return gz != null
+                ? new Content(bytes, modified, type, cacheControl, getTag(gz), readSibling(gz), getTag(br), readSibling(br))
+                : new Content(bytes, modified, type, cacheControl);
+        }catch(final Throwable ignored){
+            return null;
+        }
+    }
+
+    private ByteBuffer readDirect() throws IOException {
+        try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            final long size = channel.size();
+            if(size > Integer.MAX_VALUE)
+                throw new IOException("File is too large to read into a buffer");
+            final ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+            while(buffer.hasRemaining() && channel.read(buffer) != -1);
+            ((Buffer) buffer).flip(); // Buffer method for Java 8 compatibility
+            return buffer.asReadOnlyBuffer();
+        }
+    }
+
+    private static ByteBuffer toDirect(final byte[] bytes){
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        ((Buffer) buffer).flip(); // Buffer method for Java 8 compatibility
+        return buffer.asReadOnlyBuffer();
+    }
+
+    private static byte[] readSibling(final File sibling){ // precompressed file
+        try{
+            return sibling.isFile() ? Files.readAllBytes(sibling.toPath()) : null;
+        }catch(final IOException ignored){
+            return null;
+        }
+    }
+
+    // validator for a precompressed file, so a change to only that file changes its tag
+    private static String getTag(final File sibling){
+        return sibling.isFile() ? Long.toHexString(sibling.lastModified()) + '-' + Long.toHexString(sibling.length()) : null;
+    }
+
+    // modified time of the file combined with its precompressed files, so a change to any of them is seen as modified
+    private long getModified(){
+        final long modified = file.lastModified();
+        return gz == null ? modified : (modified * 31 + gz.lastModified()) * 31 + br.lastModified();
+    }
+
     //
 
     final File getFile(){
         return file;
     }
 
-    synchronized final void reloadBytes(){
+    final FileOptions getOptions(){
+        return options;
+    }
+
+    final String getType(){
+        return type;
+    }
+
+    // watch
+
+    // watch the parent directory for changes to this file, used for files not added from a directory
+    final synchronized void watch(){
+        if(options.loading != WATCH || key != null) return;
+        try{
+            key = WatchUtility.register(path.toAbsolutePath().getParent(), listener);
+            stale = true; // file may have changed before registering
+            watched = true;
+        }catch(final IOException | UnsupportedOperationException ignored){ }
+    }
+
+    // file changes are reported by the directory this file was added from
+    final void setWatched(){
+        watched = true;
+    }
+
+    final void invalidate(){
+        stale = true;
+    }
+
+    private void onEvent(final Path directory, final WatchEvent.Kind<?> kind, final Path p){
+        final Path absolute = path.toAbsolutePath();
+        if(p == null || p.equals(absolute) || gz != null && (p.equals(gz.toPath().toAbsolutePath()) || p.equals(br.toPath().toAbsolutePath())))
+            invalidate();
+    }
+
+    private synchronized void sweep(){
+        if(sweep == null) return; // closed
+        if(isExpired())
+            clearBytes();
+        else // scheduler and wall clock can disagree by a millisecond
+            sweep = ScheduleUtility.schedule(this::sweep, Math.max(1, expiry.get() - System.currentTimeMillis() + 1));
+    }
+
+    // stop watching and release content from the cache
+    final synchronized void close(){
+        if(sweep != null)
+            sweep.cancel(false);
+        sweep = null;
+        WatchUtility.cancel(key, listener);
+        key = null;
+        watched = false;
+        content.set(null);
+        cache.remove(this);
+    }
+
+    synchronized final Content reloadBytes(){
         switch(options.loading){
             default:
-            case PRELOAD:
             case LIVE:
-                throw new UnsupportedOperationException("Reload is only supported for CACHE and MODIFY options");
+                throw new UnsupportedOperationException("Reload is only supported for PRELOAD, CACHE, MODIFY, and WATCH options");
+            case WATCH:
+                stale = false; // cleared before reading so a concurrent change is seen as stale
             case MODIFY:
-                lastModified.set(file.lastModified());
+                lastModified.set(getModified());
             case CACHE:
                 expiry.getAndUpdate(was -> System.currentTimeMillis() + options.cache); // reset expiry
-                try{
-                    bytes = adapter.getBytes(file, Files.readAllBytes(path));
-                }catch(final Throwable ignored){
-                    bytes = null;
+                if(options.loading == CACHE){ // clear when expired
+                    if(sweep != null)
+                        sweep.cancel(false);
+                    sweep = ScheduleUtility.schedule(this::sweep, options.cache);
                 }
+            case PRELOAD: // evicted
+                return store(load());
         }
     }
 
@@ -90,35 +242,88 @@ final class FileEntry {
             default:
             case PRELOAD:
             case LIVE:
-                throw new UnsupportedOperationException("Clear is only supported for CACHE and MODIFY options");
+                throw new UnsupportedOperationException("Clear is only supported for CACHE, MODIFY, and WATCH options");
+            case WATCH:
+                stale = true;
             case MODIFY:
                 lastModified.set(-1); // force getBytes to re-fetch
             case CACHE:
-                bytes = null;
+                content.set(null);
+                cache.remove(this);
         }
     }
 
+    // if content is held in memory
+    final boolean isLoaded(){
+        return content.get() != null;
+    }
+
     final byte[] getBytes(){
+        final Content content = getContent();
+        return content != null ? content.getBytes() : null;
+    }
+
+    final Content getContent(){
+        final Content content = this.content.get(); // null if evicted
         switch(options.loading){
-            case PRELOAD:
-                return bytes;
             default:
             case LIVE:
-                try{
-                    return adapter.getBytes(file, Files.readAllBytes(path)); // read and adapt bytes
-                }catch(final Throwable ignored){ }
-                return null;
+                final Content loaded = load(); // read and adapt bytes
+                if(!options.compress || loaded == null)
+                    return loaded;
+                // keep the last content so it is only compressed again once it changes
+                return content != null && content.etag.equals(loaded.etag) ? hit(content) : store(loaded);
+            case PRELOAD:
+                return content != null ? hit(content) : reload(null);
+            case WATCH:
+                if(watched) // reload if the file system reported a change
+                    return content != null && !stale ? hit(content) : reload(content);
             case MODIFY:
-                if(file.lastModified() != lastModified.get()) // reload if modified
-                    reloadBytes();
-                return bytes;
+                return content != null && getModified() == lastModified.get() ? hit(content) : reload(content); // reload if modified
             case CACHE:
-                if(bytes == null || isExpired()) // fetch if no data or re-fetch if expired
-                    reloadBytes();
-                return bytes;
+                if(content == null || isExpired()) // fetch if no data or re-fetch if expired
+                    return reload(content);
+                if(options.refresh > 0 && expiry.get() - options.refresh < System.currentTimeMillis()) // refresh before expiry
+                    refresh();
+                return hit(content);
         }
     }
 
+    // only one thread reloads, others are served the stale content or wait for the reload
+    private Content reload(final Content stale){
+        CompletableFuture<Content> existing;
+        while((existing = reloading.get()) == null){
+            final CompletableFuture<Content> future = new CompletableFuture<>();
+            if(reloading.compareAndSet(null, future))
+                return complete(future);
+        }
+        return stale != null ? hit(stale) : existing.join();
+    }
+
+    private void refresh(){
+        final CompletableFuture<Content> future = new CompletableFuture<>();
+        if(reloading.compareAndSet(null, future))
+            ScheduleUtility.runAsync(() -> complete(future)); // blocking read, kept off the scheduler
+    }
+
+    private Content complete(final CompletableFuture<Content> future){
+        try{
+            final Content content = reloadBytes();
+            future.complete(content);
+            return content;
+        }catch(final RuntimeException e){
+            future.completeExceptionally(e);
+            throw e;
+        }finally{
+            reloading.compareAndSet(future, null);
+        }
+    }
+
+    private Content hit(final Content content){
+        cache.touch(this);
+        return content;
+    }
+
     final boolean isExpired(){
         return options.loading == CACHE && expiry.get() < System.currentTimeMillis();
     }
@@ -132,11 +337,140 @@ final class FileEntry {
                ", path=" + path +
                ", adapter=" + adapter +
                ", options=" + options +
-               ", bytes=" + Arrays.toString(bytes) +
+               ", type='" + type + '\'' +
+               ", content=" + content +
                ", lastModified=" + lastModified +
                ", expiry=" + expiry +
+               ", watched=" + watched +
+               ", stale=" + stale +
                ", expired=" + isExpired() +
                '}';
     }
 
-}
\ No newline at end of file
+    //
+
+    // adapted bytes, their compressed variants, and the validators that describe them
+    static final class Content {
+
+        private static final byte[] uncompressible = new byte[0];
+
+        final byte[] bytes;
+        final ByteBuffer buffer; // off heap only
+        final long lastModified;
+        final String type; // null if unknown
+        final String cacheControl; // null if not sent
+        final String etag;
+
+        private final byte[] br; // precompressed only
+        private volatile byte[] gzip; // lazy
+
+        // response headers as name and value pairs, built once so each request only copies them
+        private final String[] headers, gzipHeaders, brHeaders;
+
+        Content(final byte[] bytes, final long lastModified, final String type, final String cacheControl){
+            this(bytes, lastModified, type, cacheControl, null, null, null, null);
+        }
+
+        // tags identify the precompressed files, null if there is none
+        Content(final byte[] bytes, final long lastModified, final String type, final String cacheControl, final String gzipTag, final byte[] gzip, final String brTag, final byte[] br){
+            this(bytes, null, lastModified, type, cacheControl, bytes == null ? null : FileRequestUtility.getETag(bytes, lastModified), gzip != null ? gzipTag : null, gzip, br != null ? brTag : null, br);
+        }
+
+        Content(final ByteBuffer buffer, final long lastModified, final String type, final String cacheControl){
+            this(null, buffer, lastModified, type, cacheControl, FileRequestUtility.getETag(buffer, lastModified), null, null, null, null);
+        }
+
+        private Content(final byte[] bytes, final ByteBuffer buffer, final long lastModified, final String type, final String cacheControl, final String etag, final String gzipTag, final byte[] gzip, final String brTag, final byte[] br){
+            this.bytes        = bytes;
+            this.buffer       = buffer;
+            this.lastModified = lastModified;
+            this.type         = type;
+            this.cacheControl = cacheControl;
+            this.etag         = etag;
+            this.gzip         = gzip;
+            this.br           = br;
+
+            final String date = lastModified > 0 ? FileRequestUtility.formatDate(lastModified) : null;
+            this.headers      = getHeaders(type, cacheControl, etag, date, null, null);
+            this.gzipHeaders  = bytes != null ? getHeaders(type, cacheControl, etag, date, "gzip", gzipTag) : null;
+            this.brHeaders    = br != null ? getHeaders(type, cacheControl, etag, date, "br", brTag) : null;
+        }
+
+        private static String[] getHeaders(final String type, final String cacheControl, final String etag, final String lastModified, final String encoding, final String tag){
+            final List<String> OUT = new ArrayList<>(12);
+            if(type != null)
+                Collections.addAll(OUT, "Content-Type", type);
+            if(encoding != null)
+                Collections.addAll(OUT, "Content-Encoding", encoding);
+            if(cacheControl != null)
+                Collections.addAll(OUT, "Cache-Control", cacheControl);
+            if(etag != null) // encoded representations have their own tag
+                Collections.addAll(OUT, "ETag", encoding == null ? etag : etag.substring(0, etag.length() - 1) + (tag != null ? '-' + tag : "") + '-' + encoding + '"');
+            if(lastModified != null)
+                Collections.addAll(OUT, "Last-Modified", lastModified);
+            Collections.addAll(OUT, "Accept-Ranges", "bytes");
+            return OUT.toArray(new String[0]);
+        }
+
+        // returns the header template for an encoding, or null if there is no content with that encoding
+        final String[] getHeaders(final String encoding){
+            if(encoding == null)
+                return headers;
+            else if(encoding.equals("gzip"))
+                return gzipHeaders;
+            else if(encoding.equals("br"))
+                return brHeaders;
+            else
+                return null;
+        }
+
+        // copies off heap content
+        final byte[] getBytes(){
+            if(buffer == null) return bytes;
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return bytes;
+        }
+
+        final byte[] getBrotli(){
+            return br;
+        }
+
+        // bytes held on and off heap including compressed variants
+        final long size(){
+            final byte[] gzip = this.gzip;
+            return (bytes != null ? bytes.length : 0) + (buffer != null ? buffer.capacity() : 0) + (br != null ? br.length : 0) + (gzip != null ? gzip.length : 0);
+        }
+
+        // compressed once with the options of the first request, null if not worth compressing
+        final byte[] getGzip(final CompressionOptions options){
+            byte[] gzip = this.gzip;
+            if(gzip == null && bytes != null){
+                synchronized(this){
+                    if((gzip = this.gzip) == null)
+                        this.gzip = gzip = compress(bytes, type, options);
+                }
+            }
+            return gzip == uncompressible ? null : gzip;
+        }
+
+        private static byte[] compress(final byte[] bytes, final String type, final CompressionOptions options){
+            if(bytes.length < options.threshold || !CompressionUtility.isCompressible(type))
+                return uncompressible;
+            final byte[] gzip = CompressionUtility.gzip(bytes, options);
+            return gzip.length < bytes.length ? gzip : uncompressible;
+        }
+
+        @Override
+        public String toString(){
+            return "Content{" +
+                   "bytes=" + (bytes == null ? null : bytes.length) +
+                   ", buffer=" + (buffer == null ? null : buffer.capacity()) +
+                   ", lastModified=" + lastModified +
+                   ", etag='" + etag + '\'' +
+                   '}';
+        }
+
+    }
+
+}
@@ -18,15 +18,24 @@
 
 package dev.katsute.simplehttpserver.handler.file;
 
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
+import dev.katsute.simplehttpserver.CompressionOptions;
+import dev.katsute.simplehttpserver.CompressionUtility;
 import dev.katsute.simplehttpserver.SimpleHttpExchange;
 import dev.katsute.simplehttpserver.SimpleHttpHandler;
 
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URLDecoder;
-import java.util.Map;
-import java.util.Objects;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -34,6 +43,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * <br>
  * <h1>{@link FileAdapter}</h1>
  * A {@link FileAdapter} determines where a file can be accessed and what content it will return. By default files would be accessible at the file name (including extension) with the file content.
+ * <br>
+ * A {@link StreamingFileAdapter} adapts files as a stream. If it is not cacheable, files are transformed on every request and written directly to the response instead of being passed to {@link #handle(SimpleHttpExchange, File, byte[])}.
  *
  * <h1>Adding Files</h1>
  * The name parameters in the add methods supersedes the {@link FileAdapter} and makes a file accessible at whatever name you set.
@@ -49,25 +60,44 @@ import java.util.concurrent.ConcurrentHashMap;
  * <ul>
  *     <li>{@link FileOptions.FileLoadingOption#PRELOAD} - files are read when added</li>
  *     <li>{@link FileOptions.FileLoadingOption#MODIFY} - files are read when added and when modified</li>
+ *     <li>{@link FileOptions.FileLoadingOption#WATCH} - files are read when added and when the file system reports a change</li>
  *     <li>{@link FileOptions.FileLoadingOption#CACHE} - files are read when requested and cached for a set time</li>
  *     <li>{@link FileOptions.FileLoadingOption#LIVE} - files are read when requested</li>
  * </ul>
  * <h2>Cache</h2>
  * If the loading option {@link FileOptions.FileLoadingOption#CACHE} is used, the {@link FileOptions#cache} determines how long to cache files for in milliseconds.
+ * <br>
+ * File content kept in memory can be limited by setting a budget on the {@link FileCache}, which is shared by all file handlers. Files evicted from the cache are read again when requested.
  * <h2>Walk</h2>
  * When directories are added, if true, will also include subdirectories; if false, will only include files in the immediate directory.
+ * <h2>Index and Listing</h2>
+ * When directories are added, requests for a directory are answered with its {@link FileOptions#index} file if it has one, otherwise with a listing of the directory if {@link FileOptions#listing} is true. Listings are sent as JSON to clients that accept <code>application/json</code> and not <code>text/html</code>, and are only rendered again when the directory changes.
+ * <h2>Compress</h2>
+ * If true, files are sent compressed to clients that accept it. A sibling file with the extension <code>.br</code> or <code>.gz</code> is sent instead if it exists and the handler uses the default adapter.
+ * <h2>Off Heap</h2>
+ * If true, loaded files are kept in direct buffers outside of the heap and handled by {@link #handle(SimpleHttpExchange, File, ByteBuffer)}.
+ *
+ * <h1>Content Type</h1>
+ * The <code>Content-Type</code> header is set from the extension of the file name after adapting. Files with an unknown extension are sent without one.
+ *
+ * <h1>Cache Control</h1>
+ * The {@link FileOptions#maxAge}, {@link FileOptions#immutable}, and {@link FileOptions#fingerprint} options set the <code>Cache-Control</code> header so clients and shared caches can reuse files without requesting them again.
+ *
+ * <h1>Conditional and Range Requests</h1>
+ * Files are sent with <code>ETag</code> and <code>Last-Modified</code> headers. Requests with <code>If-None-Match</code> or <code>If-Modified-Since</code> are answered with <code>304 Not Modified</code> if the file is unchanged, and requests with <code>Range</code> are answered with only the requested parts of the file.
  *
  * @see FileAdapter
+ * @see StreamingFileAdapter
  * @see FileOptions
  * @since 5.0.0
- * @version 5.0.0
+ * @version 5.1.0
  * @author Katsute
  */
 public class FileHandler implements SimpleHttpHandler {
 
     private static final FileOptions defaultOptions = new FileOptions();
 
-    private static final FileAdapter defaultAdapter = new FileAdapter() {
+    static final FileAdapter defaultAdapter = new FileAdapter() {
 
         @Override
         public final byte[] getBytes(final File file, final byte[] bytes){
@@ -88,9 +118,11 @@ public class FileHandler implements SimpleHttpHandler {
     //
 
     private final FileAdapter adapter;
+    private final boolean streaming;
 
     private final Map<String,FileEntry> files = new ConcurrentHashMap<>();
     private final Map<String,DirectoryEntry> directories = new ConcurrentHashMap<>();
+    private final ContextTrie<DirectoryEntry> directoryIndex = new ContextTrie<>(); // longest prefix lookup for directories
 
     //
 
@@ -112,7 +144,8 @@ public class FileHandler implements SimpleHttpHandler {
      * @since 5.0.0
      */
     public FileHandler(final FileAdapter adapter){
-        this.adapter = Objects.requireNonNull(adapter);
+        this.adapter   = Objects.requireNonNull(adapter);
+        this.streaming = FileEntry.isStreaming(adapter);
     }
 
     //
@@ -181,10 +214,14 @@ public class FileHandler implements SimpleHttpHandler {
             final FileOptions opts = options == null ? defaultOptions : new FileOptions(options); // dereference to prevent modification
             Objects.requireNonNull(opts.loading);
             Objects.requireNonNull(opts.context);
-            files.put(
+            final FileEntry entry = new FileEntry(file, adapter, opts);
+            entry.watch();
+            final FileEntry previous = files.put(
                 ContextUtility.joinContexts(true, false, opts.context, fileName == null ? adapter.getName(file) : fileName),
-                new FileEntry(file, adapter, opts)
+                entry
             );
+            if(previous != null)
+                previous.close();
         }catch(final UncheckedIOException ignored){ }
     }
 
@@ -278,21 +315,97 @@ public class FileHandler implements SimpleHttpHandler {
      * @since 5.0.0
      */
     public final void addDirectory(final File directory, final String directoryName, final FileOptions options){
-        Objects.requireNonNull(directory);
         try{
-            final FileOptions opts = options == null ? defaultOptions : new FileOptions(options); // dereference to prevent modification
-            Objects.requireNonNull(opts.loading);
-            Objects.requireNonNull(opts.context);
-            final String target = ContextUtility.joinContexts(true, false, opts.context, directoryName);
-            directories.put(
-                target,
-                new DirectoryEntry(directory, adapter, opts)
-            );
+            addDirectory(directory, directoryName, options, false);
         }catch(final UncheckedIOException ignored){}
     }
 
     //
 
+    /**
+     * Adds a directory to the handler using the directory name, loading files in the background. Files are served as {@link FileOptions.FileLoadingOption#LIVE} until loaded.
+     *
+     * @param directory directory to add
+     * @return future completed when the directory is loaded
+     *
+     * @see #addDirectoryAsync(File, FileOptions)
+     * @see #addDirectoryAsync(File, String)
+     * @see #addDirectoryAsync(File, String, FileOptions)
+     * @since 5.1.0
+     */
+    public final CompletableFuture<Void> addDirectoryAsync(final File directory){
+        return addDirectoryAsync(directory, getName(directory), null);
+    }
+
+    /**
+     * Adds a directory to the handler using the directory name from a set of file options, loading files in the background. Files are served as {@link FileOptions.FileLoadingOption#LIVE} until loaded.
+     *
+     * @param directory directory to add
+     * @param options file options
+     * @return future completed when the directory is loaded
+     *
+     * @see FileOptions
+     * @see #addDirectoryAsync(File)
+     * @see #addDirectoryAsync(File, String)
+     * @see #addDirectoryAsync(File, String, FileOptions)
+     * @since 5.1.0
+     */
+    public final CompletableFuture<Void> addDirectoryAsync(final File directory, final FileOptions options){
+        return addDirectoryAsync(directory, getName(directory), options);
+    }
+
+    /**
+     * Adds a directory to the handler with a set name, loading files in the background. Files are served as {@link FileOptions.FileLoadingOption#LIVE} until loaded.
+     *
+     * @param directory directory to add
+     * @param directoryName directory name to use
+     * @return future completed when the directory is loaded
+     *
+     * @see #addDirectoryAsync(File)
+     * @see #addDirectoryAsync(File, FileOptions)
+     * @see #addDirectoryAsync(File, String, FileOptions)
+     * @since 5.1.0
+     */
+    public final CompletableFuture<Void> addDirectoryAsync(final File directory, final String directoryName){
+        return addDirectoryAsync(directory, directoryName, null);
+    }
+
+    /**
+     * Adds a directory to the handler with a set name from a set of file options, loading files in the background. Files are served as {@link FileOptions.FileLoadingOption#LIVE} until loaded.
+     *
+     * @param directory directory to add
+     * @param directoryName directory name to use
+     * @param options file options
+     * @return future completed when the directory is loaded
+     *
+     * @see FileOptions
+     * @see #addDirectoryAsync(File)
+     * @see #addDirectoryAsync(File, FileOptions)
+     * @see #addDirectoryAsync(File, String)
+     * @since 5.1.0
+     */
+    public final CompletableFuture<Void> addDirectoryAsync(final File directory, final String directoryName, final FileOptions options){
+        return addDirectory(directory, directoryName, options, true);
+    }
+
+    private CompletableFuture<Void> addDirectory(final File directory, final String directoryName, final FileOptions options, final boolean async){
+        Objects.requireNonNull(directory);
+        final FileOptions opts = options == null ? defaultOptions : new FileOptions(options); // dereference to prevent modification
+        Objects.requireNonNull(opts.loading);
+        Objects.requireNonNull(opts.context);
+        final String target = ContextUtility.joinContexts(true, false, opts.context, directoryName);
+        final DirectoryEntry entry = new DirectoryEntry(directory, adapter, opts, async);
+        synchronized(directoryIndex){
+            final DirectoryEntry previous = directories.put(target, entry);
+            directoryIndex.put(target, entry);
+            if(previous != null)
+                previous.close();
+        }
+        return entry.getLoaded();
+    }
+
+    //
+
     /**
      * Removes a file from the handler at the specified context.
      *
@@ -303,7 +416,9 @@ public class FileHandler implements SimpleHttpHandler {
      * @since 5.0.0
      */
     public final void removeFile(final String context){
-        files.remove(ContextUtility.getContext(Objects.requireNonNull(context), true, false));
+        final FileEntry previous = files.remove(ContextUtility.getContext(Objects.requireNonNull(context), true, false));
+        if(previous != null)
+            previous.close();
     }
 
     /**
@@ -344,7 +459,13 @@ public class FileHandler implements SimpleHttpHandler {
      * @since 5.0.0
      */
     public final void removeDirectory(final String context){
-        directories.remove(ContextUtility.getContext(Objects.requireNonNull(context), true, false));
+        final String target = ContextUtility.getContext(Objects.requireNonNull(context), true, false);
+        synchronized(directoryIndex){
+            final DirectoryEntry previous = directories.remove(target);
+            directoryIndex.remove(target);
+            if(previous != null)
+                previous.close();
+        }
     }
 
     /**
@@ -375,56 +496,144 @@ public class FileHandler implements SimpleHttpHandler {
         removeDirectory(ContextUtility.joinContexts(true, false, options.context, getName(directory)));
     }
 
+    final FileEntry getEntry(final String context){
+        return files.get(ContextUtility.getContext(Objects.requireNonNull(context), true, false));
+    }
+
     //
 
     @Override
     public final void handle(final SimpleHttpExchange exchange) throws IOException {
         final String context = URLDecoder.decode(ContextUtility.getContext(exchange.getRequestURI().getPath().substring(exchange.getHttpContext().getPath().length()), true, false), "UTF-8");
 
-        boolean refreshExpired = false;
-
-        if(files.containsKey(context)){ // exact file match
-            final FileEntry entry = files.get(context);
-
-            if(entry.isExpired()){
-                refreshExpired = true; // check if other files also need clearing
-                entry.clearBytes();
-            }
-
-            handle(exchange, entry.getFile(), entry.getBytes());
+        final FileEntry exact = files.get(context);
+        if(exact != null){ // exact file match
+            if(streaming)
+                stream(exchange, exact.getFile(), exact.getOptions());
+            else
+                handle(exchange, exact.getFile(), exact.getContent(), exact.getOptions());
         }else{ // leading directory match
-            String match = "";
-            for(final String key : directories.keySet())
-                if(context.startsWith(key) && key.startsWith(match))
-                    match = key;
+            final ContextTrie.Entry<DirectoryEntry> match = directoryIndex.find(context);
 
-            if(match.isEmpty()){ // no match
-                handle(exchange, null, null);
+            if(match == null){ // no match
+                handle(exchange, null, (byte[]) null);
             }else{ // get file from matching directory
-                final DirectoryEntry dir = directories.get(match);
-                String rel = context.substring(match.length());
+                final DirectoryEntry dir = match.value;
+                final FileOptions opts   = dir.getOptions();
+                String rel = context.substring(match.context.length());
+
+                FileEntry entry = streaming ? null : dir.getFileEntry(rel);
+
+                if(entry == null && (opts.index != null || opts.listing)){ // directory
+                    final String index = dir.getIndex(rel);
+                    if(index != null){
+                        rel   = index;
+                        entry = streaming ? null : dir.getFileEntry(rel);
+                    }else if(opts.listing){
+                        final String accept = exchange.getRequestHeaders().getFirst("Accept");
+                        final boolean json  = accept != null && accept.contains("application/json") && !accept.contains("text/html");
+                        final byte[] listing = dir.getListing(rel, ContextUtility.joinContexts(true, false, exchange.getHttpContext().getPath(), match.context), json);
+                        if(listing != null){
+                            exchange.getResponseHeaders().set("Content-Type", json ? "application/json" : "text/html; charset=utf-8");
+                            exchange.send(listing, HttpURLConnection.HTTP_OK);
+                            exchange.close();
+                            return;
+                        }
+                    }
+                }
 
-                final FileEntry entry = dir.getFileEntry(rel);
+                if(streaming){
+                    stream(exchange, dir.getFile(rel), opts);
+                }else if(entry != null){
+                    handle(exchange, entry.getFile(), entry.getContent(), entry.getOptions());
+                }else{
+                    final File file = dir.getFile(rel);
+                    final byte[] bytes = dir.getBytes(rel);
+                    handle(exchange, file, file == null || bytes == null ? null : new FileEntry.Content(bytes, file.lastModified(), MimeUtility.getType(rel), FileRequestUtility.getCacheControl(opts, rel)), opts);
+                }
+            }
+        }
+        exchange.close();
+    }
 
-                if(entry != null && entry.isExpired()){
-                    refreshExpired = true; // check if other files also need clearing
-                    entry.clearBytes();
+    private void handle(final SimpleHttpExchange exchange, final File source, final FileEntry.Content content, final FileOptions options) throws IOException {
+        byte[] bytes = content != null ? content.bytes : null;
+        final ByteBuffer buffer = content != null ? content.buffer : null;
+        if(source != null && (bytes != null || buffer != null)){ // validators for conditional and range requests
+            final Headers headers = exchange.getResponseHeaders();
+            String[] template = content.getHeaders(null);
+
+            // ranges are only served from the uncompressed file, off heap files are not compressed
+            if(options.compress && bytes != null && !exchange.getRequestHeaders().containsKey("Range")){
+                headers.add("Vary", "Accept-Encoding");
+                final Headers request = exchange.getRequestHeaders();
+                final byte[] br, gzip;
+                if((br = content.getBrotli()) != null && CompressionUtility.acceptsEncoding(request, "br")){
+                    template = content.getHeaders("br");
+                    bytes    = br;
+                }else if(CompressionUtility.acceptsEncoding(request, "gzip") && (gzip = content.getGzip(CompressionUtility.getCompressionOptions(exchange))) != null){
+                    template = content.getHeaders("gzip");
+                    bytes    = gzip;
                 }
+            }
 
-                handle(
-                    exchange,
-                    entry == null ? dir.getFile(rel) : entry.getFile(),
-                    entry == null ? dir.getBytes(rel) : entry.getBytes()
-                );
+            for(int i = 0; i < template.length; i += 2)
+                headers.set(template[i], template[i + 1]);
+        }
+        if(buffer != null)
+            handle(exchange, source, buffer.duplicate());
+        else
+            handle(exchange, source, bytes);
+    }
 
-            }
+    // transform the file into the response without keeping it in memory
+    private void stream(final SimpleHttpExchange exchange, final File source, final FileOptions options) throws IOException {
+        if(source == null || !source.isFile()){
+            handle(exchange, null, (byte[]) null);
+            return;
+        }
+
+        final Headers request  = exchange.getRequestHeaders();
+        final Headers response = exchange.getResponseHeaders();
+        final long modified    = source.lastModified();
+        final String etag      = "W/\"" + Long.toHexString(modified) + '-' + Long.toHexString(source.length()) + '"'; // adapted content is unknown until sent
+        final String method    = exchange.getRequestMethod();
+
+        final String name         = adapter.getName(source);
+        final String type         = MimeUtility.getType(name);
+        final String cacheControl = FileRequestUtility.getCacheControl(options, name);
+        if(type != null)
+            response.set("Content-Type", type);
+        if(cacheControl != null)
+            response.set("Cache-Control", cacheControl);
+        response.set("ETag", etag);
+        if(modified > 0)
+            response.set("Last-Modified", FileRequestUtility.formatDate(modified));
+
+        if((method.equalsIgnoreCase("GET") || method.equalsIgnoreCase("HEAD")) && FileRequestUtility.isNotModified(request, etag, response.getFirst("Last-Modified"))){
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+            return;
         }
-        exchange.close();
 
-        // cache only
-        if(refreshExpired){ // clear expired files
-            files.values().stream().filter(FileEntry::isExpired).forEach(FileEntry::clearBytes);
-            directories.values().forEach(dir -> dir.getFiles().values().stream().filter(FileEntry::isExpired).forEach(FileEntry::clearBytes));
+        final CompressionOptions compression = CompressionUtility.getCompressionOptions(exchange);
+        final boolean compressible = options.compress && source.length() >= compression.threshold && CompressionUtility.isCompressible(type); // adapted size is unknown, use file size
+        final boolean gzip = compressible && CompressionUtility.acceptsEncoding(request, "gzip");
+        if(compressible)
+            response.add("Vary", "Accept-Encoding");
+        if(gzip)
+            response.set("Content-Encoding", "gzip");
+
+        if(method.equalsIgnoreCase("HEAD")){
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0); // chunked
+        try(
+            final InputStream IN   = Files.newInputStream(source.toPath());
+            final OutputStream OUT = gzip ? CompressionUtility.gzip(exchange.getResponseBody(), compression) : exchange.getResponseBody()
+        ){
+            ((StreamingFileAdapter) adapter).transform(source, IN, OUT);
         }
     }
 
@@ -435,6 +644,8 @@ public class FileHandler implements SimpleHttpHandler {
 
     /**
      * Handles a file exchange. The file bytes are the bytes after post processing if {@link FileAdapter} is used.
+     * <br>
+     * Conditional requests are answered with <code>304 Not Modified</code> and range requests with <code>206 Partial Content</code> using the <code>ETag</code> and <code>Last-Modified</code> response headers.
      *
      * @param exchange http exchange
      * @param source file source
@@ -445,10 +656,118 @@ public class FileHandler implements SimpleHttpHandler {
      * @since 5.0.0
      */
     public void handle(final SimpleHttpExchange exchange, final File source, final byte[] bytes) throws IOException {
-        if(source == null)
+        if(source == null){
             exchange.send(HttpURLConnection.HTTP_NOT_FOUND);
-        else
-            exchange.send(bytes, HttpURLConnection.HTTP_OK);
+            return;
+        }
+        send(exchange, bytes != null ? ByteBuffer.wrap(bytes) : null);
+    }
+
+    /**
+     * Handles a file exchange for files loaded with {@link FileOptions#offHeap}. The buffer is written to the response without being copied onto the heap.
+     * <br>
+     * Conditional requests are answered with <code>304 Not Modified</code> and range requests with <code>206 Partial Content</code> using the <code>ETag</code> and <code>Last-Modified</code> response headers.
+     *
+     * @param exchange http exchange
+     * @param source file source
+     * @param buffer file content
+     *
+     * @throws IOException IO exception
+     *
+     * @see FileOptions#offHeap
+     * @since 5.1.0
+     */
+    public void handle(final SimpleHttpExchange exchange, final File source, final ByteBuffer buffer) throws IOException {
+        if(source == null){
+            exchange.send(HttpURLConnection.HTTP_NOT_FOUND);
+            return;
+        }
+        send(exchange, buffer);
+    }
+
+    private static void send(final SimpleHttpExchange exchange, final ByteBuffer body) throws IOException {
+        final Headers request  = exchange.getRequestHeaders();
+        final Headers response = exchange.getResponseHeaders();
+        final String etag         = response.getFirst("ETag");
+        final String lastModified = response.getFirst("Last-Modified");
+        final String method       = exchange.getRequestMethod();
+        final boolean get         = method.equalsIgnoreCase("GET") || method.equalsIgnoreCase("HEAD");
+
+        if(get && FileRequestUtility.isNotModified(request, etag, lastModified)){
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+            return;
+        }
+
+        final int size = body != null ? body.remaining() : 0;
+        final List<long[]> ranges = get && body != null && FileRequestUtility.isRangeValid(request, etag, lastModified)
+            ? FileRequestUtility.parseRanges(request.getFirst("Range"), size)
+            : null;
+
+        if(ranges == null){ // full content
+            if(size == 0){ // missing or empty content
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, -1);
+            }else if(body.hasArray() && body.arrayOffset() == 0 && body.position() == 0 && size == body.array().length){
+                exchange.send(body.array(), HttpURLConnection.HTTP_OK); // whole heap array is sent without copying
+            }else{
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, size);
+                try(final OutputStream OUT = exchange.getResponseBody()){
+                    write(OUT, body, 0, size);
+                }
+            }
+        }else if(ranges.isEmpty()){ // unsatisfiable
+            response.set("Content-Range", "bytes */" + size);
+            exchange.sendResponseHeaders(416, -1);
+        }else if(ranges.size() == 1){ // single range
+            final long[] range = ranges.get(0);
+            final int length = (int) (range[1] - range[0] + 1);
+            response.set("Content-Range", "bytes " + range[0] + '-' + range[1] + '/' + size);
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_PARTIAL, length);
+            try(final OutputStream OUT = exchange.getResponseBody()){
+                write(OUT, body, (int) range[0], length);
+            }
+        }else{ // multiple ranges
+            final String boundary = UUID.randomUUID().toString().replace("-", "");
+            final String type = response.getFirst("Content-Type");
+
+            final byte[][] partHeaders = new byte[ranges.size()][];
+            final byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+            long length = end.length;
+            for(int i = 0; i < ranges.size(); i++){
+                final long[] range = ranges.get(i);
+                partHeaders[i] = (
+                    "\r\n--" + boundary + "\r\n" +
+                    (type != null ? "Content-Type: " + type + "\r\n" : "") +
+                    "Content-Range: bytes " + range[0] + '-' + range[1] + '/' + size + "\r\n\r\n"
+                ).getBytes(StandardCharsets.US_ASCII);
+                length += partHeaders[i].length + range[1] - range[0] + 1;
+            }
+
+            response.set("Content-Type", "multipart/byteranges; boundary=" + boundary);
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_PARTIAL, length);
+            try(final OutputStream OUT = exchange.getResponseBody()){
+                for(int i = 0; i < ranges.size(); i++){
+                    final long[] range = ranges.get(i);
+                    OUT.write(partHeaders[i]);
+                    write(OUT, body, (int) range[0], (int) (range[1] - range[0] + 1));
+                }
+                OUT.write(end);
+            }
+        }
+    }
+
+    // writes directly from the buffer, off heap buffers are written through a channel
+    private static void write(final OutputStream OUT, final ByteBuffer body, final int offset, final int length) throws IOException {
+        if(body.hasArray()){
+            OUT.write(body.array(), body.arrayOffset() + body.position() + offset, length);
+        }else{
+            final ByteBuffer slice = body.duplicate();
+            final Buffer buffer = slice; // Buffer methods for Java 8 compatibility
+            buffer.position(buffer.position() + offset);
+            buffer.limit(buffer.position() + length);
+            final WritableByteChannel channel = Channels.newChannel(OUT);
+            while(slice.hasRemaining())
+                channel.write(slice);
+        }
     }
 
     //
@@ -18,12 +18,14 @@
 
 package dev.katsute.simplehttpserver.handler.file;
 
+import java.io.File;
+
 /**
  * Represents a set of options for an added file.
  *
  * @see FileHandler
  * @since 5.0.0
- * @version 5.0.0
+ * @version 5.1.0
  * @author Katsute
  */
 public class FileOptions {
@@ -36,10 +38,18 @@ public class FileOptions {
     public FileOptions(){ }
 
     FileOptions(final FileOptions options){
-        this.context = options.context;
-        this.loading = options.loading;
-        this.cache   = options.cache;
-        this.walk    = options.walk;
+        this.context  = options.context;
+        this.loading  = options.loading;
+        this.cache    = options.cache;
+        this.refresh  = options.refresh;
+        this.walk     = options.walk;
+        this.compress = options.compress;
+        this.offHeap  = options.offHeap;
+        this.index    = options.index;
+        this.listing  = options.listing;
+        this.maxAge      = options.maxAge;
+        this.immutable   = options.immutable;
+        this.fingerprint = options.fingerprint;
     }
 
     /**
@@ -65,6 +75,14 @@ public class FileOptions {
      */
     public long cache = 0;
 
+    /**
+     * How long before a cached file expires that a request will reload it in the background, in milliseconds. Requests are served the cached file while it reloads. Only used with {@link FileLoadingOption#CACHE}.
+     *
+     * @see FileLoadingOption#CACHE
+     * @since 5.1.0
+     */
+    public long refresh = 0;
+
     /**
      * When true, also include all subdirectories when adding directories.
      *
@@ -72,13 +90,75 @@ public class FileOptions {
      */
     public boolean walk = false;
 
+    /**
+     * The name of the file to send when a directory is requested, like <code>index.html</code>. Matched against the adapted file name. If null, directories have no index file.
+     *
+     * @since 5.1.0
+     */
+    public String index = null;
+
+    /**
+     * When true, requests for a directory without an {@link #index} file are sent a listing of the directory as HTML, or as JSON if the client accepts <code>application/json</code> but not <code>text/html</code>. Subdirectories are only listed if {@link #walk} is true.
+     *
+     * @since 5.1.0
+     */
+    public boolean listing = false;
+
+    /**
+     * When true, files are compressed if the client accepts it, using the server's {@link dev.katsute.simplehttpserver.CompressionOptions}. Compressed files are kept with the file content so they are only compressed once. For {@link FileLoadingOption#LIVE} the last compressed file is kept until the file changes.
+     * <br>
+     * If a file has a sibling file with the extension <code>.br</code> or <code>.gz</code>, that file is sent instead, unless the handler uses a custom {@link FileAdapter} that changes the content.
+     *
+     * @since 5.1.0
+     */
+    public boolean compress = false;
+
+    /**
+     * When true, files loaded with {@link FileLoadingOption#PRELOAD}, {@link FileLoadingOption#MODIFY}, {@link FileLoadingOption#WATCH}, or {@link FileLoadingOption#CACHE} are kept in direct buffers outside of the heap instead of byte arrays, and are written to the response without being copied onto the heap. Off heap files count against the {@link FileCache} budget.
+     * <br>
+     * Files are adapted with {@link FileAdapter#getBytes(File, byte[])} before being copied into the direct buffer, files using the default adapter are read directly into the buffer. Off heap files are not compressed.
+     *
+     * @see FileHandler#handle(dev.katsute.simplehttpserver.SimpleHttpExchange, File, java.nio.ByteBuffer)
+     * @since 5.1.0
+     */
+    public boolean offHeap = false;
+
+    /**
+     * How long clients and shared caches may reuse files without revalidating, in seconds. Sent as <code>Cache-Control: max-age</code>. If negative no <code>Cache-Control</code> header is sent.
+     *
+     * @since 5.1.0
+     */
+    public long maxAge = -1;
+
+    /**
+     * When true, files are sent with <code>Cache-Control: immutable</code> so clients do not revalidate them while fresh. Files are cached for a year if {@link #maxAge} is not set.
+     *
+     * @since 5.1.0
+     */
+    public boolean immutable = false;
+
+    /**
+     * When true, files with a content hash in their name, such as <code>app.3f2a1b9c.js</code> or <code>app-3f2a1b9c.css</code>, are sent as immutable and cached for a year, regardless of {@link #maxAge} and {@link #immutable}. A hash is at least 8 hexadecimal characters with at least one letter and digit, separated by a <code>.</code> or <code>-</code> before the extension.
+     *
+     * @since 5.1.0
+     */
+    public boolean fingerprint = false;
+
     @Override
     public String toString(){
         return "FileOptions{" +
                "context='" + context + '\'' +
                ", loading=" + loading +
                ", cache=" + cache +
+               ", refresh=" + refresh +
                ", walk=" + walk +
+               ", index='" + index + '\'' +
+               ", listing=" + listing +
+               ", compress=" + compress +
+               ", offHeap=" + offHeap +
+               ", maxAge=" + maxAge +
+               ", immutable=" + immutable +
+               ", fingerprint=" + fingerprint +
                '}';
     }
 
@@ -88,7 +168,7 @@ public class FileOptions {
      * How to load files added to the file handler.
      *
      * @since 5.0.0
-     * @version 5.0.0
+     * @version 5.1.0
      * @author Katsute
      */
     public enum FileLoadingOption {
@@ -105,6 +185,14 @@ public class FileOptions {
          * @since 5.0.0
          */
         MODIFY,
+        /**
+         * File bytes will be read when file is added and any time the file system reports it was modified. Unlike {@link #MODIFY}, requests do not check the file for changes.
+         * <br>
+         * Falls back to {@link #MODIFY} if the file system can not be watched.
+         *
+         * @since 5.1.0
+         */
+        WATCH,
         /**
          * File bytes will be read when requested, and cached for {@link #cache} milliseconds.
          *
@@ -126,7 +214,7 @@ public class FileOptions {
      *
      * @see FileOptions
      * @since 5.0.0
-     * @version 5.0.0
+     * @version 5.1.0
      * @author Katsute
      */
     public static class Builder {
@@ -176,6 +264,20 @@ public class FileOptions {
             return this;
         }
 
+        /**
+         * Sets the background refresh time.
+         *
+         * @param refresh refresh time
+         * @return builder
+         *
+         * @see FileOptions#refresh
+         * @since 5.1.0
+         */
+        public final Builder setRefresh(final long refresh){
+            options.refresh = refresh;
+            return this;
+        }
+
         /**
          * Sets the directory walk option.
          *
@@ -190,6 +292,104 @@ public class FileOptions {
             return this;
         }
 
+        /**
+         * Sets the index file name.
+         *
+         * @param index index file name
+         * @return builder
+         *
+         * @see FileOptions#index
+         * @since 5.1.0
+         */
+        public final Builder setIndex(final String index){
+            options.index = index;
+            return this;
+        }
+
+        /**
+         * Sets the listing option.
+         *
+         * @param listing listing
+         * @return builder
+         *
+         * @see FileOptions#listing
+         * @since 5.1.0
+         */
+        public final Builder setListing(final boolean listing){
+            options.listing = listing;
+            return this;
+        }
+
+        /**
+         * Sets the compress option.
+         *
+         * @param compress compress
+         * @return builder
+         *
+         * @see FileOptions#compress
+         * @since 5.1.0
+         */
+        public final Builder setCompress(final boolean compress){
+            options.compress = compress;
+            return this;
+        }
+
+        /**
+         * Sets the off heap option.
+         *
+         * @param offHeap off heap
+         * @return builder
+         *
+         * @see FileOptions#offHeap
+         * @since 5.1.0
+         */
+        public final Builder setOffHeap(final boolean offHeap){
+            options.offHeap = offHeap;
+            return this;
+        }
+
+        /**
+         * Sets the max age.
+         *
+         * @param maxAge max age in seconds
+         * @return builder
+         *
+         * @see FileOptions#maxAge
+         * @since 5.1.0
+         */
+        public final Builder setMaxAge(final long maxAge){
+            options.maxAge = maxAge;
+            return this;
+        }
+
+        /**
+         * Sets the immutable option.
+         *
+         * @param immutable immutable
+         * @return builder
+         *
+         * @see FileOptions#immutable
+         * @since 5.1.0
+         */
+        public final Builder setImmutable(final boolean immutable){
+            options.immutable = immutable;
+            return this;
+        }
+
+        /**
+         * Sets the fingerprint option.
+         *
+         * @param fingerprint fingerprint
+         * @return builder
+         *
+         * @see FileOptions#fingerprint
+         * @since 5.1.0
+         */
+        public final Builder setFingerprint(final boolean fingerprint){
+            options.fingerprint = fingerprint;
+            return this;
+        }
+
         /**
          * Returns the builder as file options.
          *
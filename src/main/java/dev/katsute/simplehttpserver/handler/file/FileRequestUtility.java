@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver.handler.file;
+
+import com.sun.net.httpserver.Headers;
+
+import java.nio.ByteBuffer;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+// conditional and range request handling, see RFC 9110
+abstract class FileRequestUtility {
+
+    private FileRequestUtility(){ }
+
+    private static final DateTimeFormatter httpDate = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    static String getETag(final byte[] bytes, final long lastModified){
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return '"' + Long.toHexString(lastModified) + '-' + Integer.toHexString(bytes.length) + '-' + Long.toHexString(crc.getValue()) + '"';
+    }
+
+    static String getETag(final ByteBuffer buffer, final long lastModified){
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        return '"' + Long.toHexString(lastModified) + '-' + Integer.toHexString(buffer.remaining()) + '-' + Long.toHexString(crc.getValue()) + '"';
+    }
+
+    // cache control
+
+    private static final String year = "max-age=31536000, immutable";
+
+    // hash of at least 8 hexadecimal characters with a letter and a digit before the extension, like name.3f2a1b9c.js
+    private static final Pattern fingerprint = Pattern.compile("[.-](?=[0-9a-f]*[a-f])(?=[0-9a-f]*[0-9])[0-9a-f]{8,}\\.[^./\\\\]+$", Pattern.CASE_INSENSITIVE);
+
+    // returns null if no header should be sent
+    static String getCacheControl(final FileOptions options, final String name){
+        if(options.fingerprint && name != null && fingerprint.matcher(name).find())
+            return year;
+        else if(options.maxAge < 0)
+            return options.immutable ? year : null;
+        else
+            return "max-age=" + options.maxAge + (options.immutable ? ", immutable" : "");
+    }
+
+    static String formatDate(final long millis){
+        return httpDate.format(Instant.ofEpochMilli(millis));
+    }
+
+    // returns -1 if not a valid date
+    static long parseDate(final String date){
+        if(date == null) return -1;
+        try{
+            return ZonedDateTime.parse(date.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        }catch(final DateTimeParseException ignored){
+            return -1;
+        }
+    }
+
+    // conditional
+
+    private static boolean matchesETag(final String header, final String etag, final boolean weak){
+        if(header.trim().equals("*")) return true;
+        if(etag == null) return false;
+        final String target = weak && etag.startsWith("W/") ? etag.substring(2) : etag;
+        for(final String tag : header.split(",")){
+            final String t = tag.trim();
+            if(weak ? (t.startsWith("W/") ? t.substring(2) : t).equals(target) : t.equals(etag))
+                return true;
+        }
+        return false;
+    }
+
+    static boolean isNotModified(final Headers request, final String etag, final String lastModified){
+        final String ifNoneMatch = request.getFirst("If-None-Match");
+        if(ifNoneMatch != null) // takes precedence over If-Modified-Since
+            return matchesETag(ifNoneMatch, etag, true);
+
+        final long since = parseDate(request.getFirst("If-Modified-Since"));
+        final long modified = parseDate(lastModified);
+        return since != -1 && modified != -1 && modified <= since;
+    }
+
+    // range
+
+    // returns true if the representation has not changed since the range was requested
+    static boolean isRangeValid(final Headers request, final String etag, final String lastModified){
+        final String ifRange = request.getFirst("If-Range");
+        if(ifRange == null) return true;
+        final String value = ifRange.trim();
+        if(value.startsWith("\"") || value.startsWith("W/"))
+            return !value.startsWith("W/") && matchesETag(value, etag, false);
+        final long date = parseDate(value);
+        return date != -1 && date == parseDate(lastModified);
+    }
+
+    private static final int maxRanges = 16;
+
+    // returns sorted and merged ranges as inclusive start and end pairs, empty if none can be satisfied, or null if missing, invalid, or the full content should be sent
+    static List<long[]> parseRanges(final String header, final long length){
+        if(header == null || !header.trim().toLowerCase().startsWith("bytes=")) return null;
+
+        final List<long[]> OUT = new ArrayList<>();
+        for(final String spec : header.trim().substring(6).split(",")){
+            final String range = spec.trim();
+            final int dash = range.indexOf('-');
+            if(dash == -1) return null;
+            try{
+                final String first = range.substring(0, dash).trim();
+                final String last  = range.substring(dash + 1).trim();
+                if(first.isEmpty()){ // suffix
+                    if(last.isEmpty()) return null;
+                    final long suffix = Long.parseLong(last);
+                    if(suffix > 0 && length > 0)
+                        OUT.add(new long[]{Math.max(0, length - suffix), length - 1});
+                }else{
+                    final long start = Long.parseLong(first);
+                    final long end   = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+                    if(!last.isEmpty() && Long.parseLong(last) < start) return null;
+                    if(start < length)
+                        OUT.add(new long[]{start, end});
+                }
+            }catch(final NumberFormatException ignored){
+                return null;
+            }
+        }
+        return merge(OUT, length);
+    }
+
+    // overlapping ranges would let a small request amplify the response, send the full content instead of too many or too large ranges
+    private static List<long[]> merge(final List<long[]> ranges, final long length){
+        if(ranges.size() < 2) return ranges;
+        if(ranges.size() > maxRanges) return null;
+
+        long total = 0;
+        for(final long[] range : ranges)
+            total += range[1] - range[0] + 1;
+        if(total > length) return null;
+
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        final List<long[]> OUT = new ArrayList<>(ranges.size());
+        long[] last = null;
+        for(final long[] range : ranges)
+            if(last != null && range[0] <= last[1] + 1) // overlapping or adjacent
+                last[1] = Math.max(last[1], range[1]);
+            else
+                OUT.add(last = range);
+        return OUT;
+    }
+
+}
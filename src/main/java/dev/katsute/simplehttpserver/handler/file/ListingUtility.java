@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver.handler.file;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// renders directory listings as html or json
+abstract class ListingUtility {
+
+    private ListingUtility(){ }
+
+    static final class Item {
+
+        final String name;
+        final boolean directory;
+        final long size, lastModified;
+
+        Item(final String name, final boolean directory, final long size, final long lastModified){
+            this.name         = name;
+            this.directory    = directory;
+            this.size         = size;
+            this.lastModified = lastModified;
+        }
+
+    }
+
+    // base is the absolute context of the directory with a trailing slash
+    static byte[] html(final String base, final boolean parent, final List<Item> items){
+        final StringBuilder OUT = new StringBuilder(256 + items.size() * 128);
+        final String title = escape(base);
+        final String href  = escape(encodePath(base));
+        OUT.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>Index of ").append(title).append("</title></head><body>")
+           .append("<h1>Index of ").append(title).append("</h1><table><tr><th>Name</th><th>Size</th><th>Last Modified</th></tr>");
+        if(parent)
+            OUT.append("<tr><td><a href=\"../\">../</a></td><td></td><td></td></tr>");
+        for(final Item item : items){
+            final String name = escape(item.name) + (item.directory ? "/" : "");
+            OUT.append("<tr><td><a href=\"").append(href).append(encode(item.name)).append(item.directory ? "/" : "").append("\">").append(name).append("</a></td>")
+               .append("<td>").append(item.directory ? "" : String.valueOf(item.size)).append("</td>")
+               .append("<td>").append(item.lastModified > 0 ? FileRequestUtility.formatDate(item.lastModified) : "").append("</td></tr>");
+        }
+        OUT.append("</table></body></html>");
+        return OUT.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] json(final List<Item> items){
+        final StringBuilder OUT = new StringBuilder(2 + items.size() * 96).append('[');
+        for(int i = 0; i < items.size(); i++){
+            final Item item = items.get(i);
+            if(i > 0) OUT.append(',');
+            OUT.append("{\"name\":\"").append(quote(item.name))
+               .append("\",\"directory\":").append(item.directory)
+               .append(",\"size\":").append(item.directory ? 0 : item.size)
+               .append(",\"lastModified\":").append(item.lastModified)
+               .append('}');
+        }
+        return OUT.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    //
+
+    private static String escape(final String s){
+        final StringBuilder OUT = new StringBuilder(s.length() + 16);
+        for(final char c : s.toCharArray())
+            switch(c){
+                case '&':  OUT.append("&amp;");  break;
+                case '<':  OUT.append("&lt;");   break;
+                case '>':  OUT.append("&gt;");   break;
+                case '"':  OUT.append("&quot;"); break;
+                case '\'': OUT.append("&#39;");  break;
+                default:   OUT.append(c);
+            }
+        return OUT.toString();
+    }
+
+    private static String quote(final String s){
+        final StringBuilder OUT = new StringBuilder(s.length() + 8);
+        for(final char c : s.toCharArray())
+            if(c == '"' || c == '\\')
+                OUT.append('\\').append(c);
+            else if(c < 0x20)
+                OUT.append(String.format("\\u%04x", (int) c));
+            else
+                OUT.append(c);
+        return OUT.toString();
+    }
+
+    private static String encodePath(final String path){
+        final StringBuilder OUT = new StringBuilder(path.length() + 16);
+        for(final String segment : path.split("/"))
+            if(!segment.isEmpty())
+                OUT.append('/').append(encode(segment));
+        return OUT.append('/').toString();
+    }
+
+    private static String encode(final String s){
+        try{
+            return URLEncoder.encode(s, "UTF-8").replace("+", "%20");
+        }catch(final UnsupportedEncodingException e){ // UTF-8 is always supported
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver.handler.file;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+// extension to content type, resolved once per file instead of probing the file system per request
+// text types declare utf-8 so clients do not guess the encoding
+abstract class MimeUtility {
+
+    private MimeUtility(){ }
+
+    private static final Map<String,String> types = new HashMap<>();
+
+    static{
+        // text
+        types.put("html", "text/html; charset=utf-8");
+        types.put("htm", "text/html; charset=utf-8");
+        types.put("css", "text/css; charset=utf-8");
+        types.put("csv", "text/csv; charset=utf-8");
+        types.put("txt", "text/plain; charset=utf-8");
+        types.put("md", "text/markdown; charset=utf-8");
+        types.put("xml", "text/xml; charset=utf-8");
+        types.put("ics", "text/calendar; charset=utf-8");
+        types.put("js", "text/javascript; charset=utf-8");
+        types.put("mjs", "text/javascript; charset=utf-8");
+        // application
+        types.put("json", "application/json");
+        types.put("map", "application/json");
+        types.put("webmanifest", "application/manifest+json");
+        types.put("xhtml", "application/xhtml+xml");
+        types.put("rss", "application/rss+xml");
+        types.put("atom", "application/atom+xml");
+        types.put("wasm", "application/wasm");
+        types.put("pdf", "application/pdf");
+        types.put("zip", "application/zip");
+        types.put("gz", "application/gzip");
+        types.put("tar", "application/x-tar");
+        types.put("7z", "application/x-7z-compressed");
+        types.put("rar", "application/x-rar-compressed");
+        types.put("jar", "application/java-archive");
+        types.put("bin", "application/octet-stream");
+        types.put("exe", "application/octet-stream");
+        // image
+        types.put("png", "image/png");
+        types.put("jpg", "image/jpeg");
+        types.put("jpeg", "image/jpeg");
+        types.put("gif", "image/gif");
+        types.put("webp", "image/webp");
+        types.put("avif", "image/avif");
+        types.put("svg", "image/svg+xml");
+        types.put("ico", "image/x-icon");
+        types.put("bmp", "image/bmp");
+        types.put("tif", "image/tiff");
+        types.put("tiff", "image/tiff");
+        // font
+        types.put("woff", "font/woff");
+        types.put("woff2", "font/woff2");
+        types.put("ttf", "font/ttf");
+        types.put("otf", "font/otf");
+        // audio
+        types.put("mp3", "audio/mpeg");
+        types.put("wav", "audio/wav");
+        types.put("ogg", "audio/ogg");
+        types.put("oga", "audio/ogg");
+        types.put("flac", "audio/flac");
+        types.put("aac", "audio/aac");
+        types.put("m4a", "audio/mp4");
+        // video
+        types.put("mp4", "video/mp4");
+        types.put("m4v", "video/mp4");
+        types.put("webm", "video/webm");
+        types.put("ogv", "video/ogg");
+        types.put("mov", "video/quicktime");
+        types.put("avi", "video/x-msvideo");
+    }
+
+    // returns null if the extension is unknown, so clients can decide
+    static String getType(final String name){
+        if(name == null) return null;
+        final int dot = name.lastIndexOf('.');
+        if(dot == -1 || dot < name.lastIndexOf('/') || dot < name.lastIndexOf(File.separatorChar)) return null;
+        return types.get(name.substring(dot + 1).toLowerCase());
+    }
+
+}
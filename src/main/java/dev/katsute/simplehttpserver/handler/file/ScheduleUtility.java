@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver.handler.file;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// background work shared by all file handlers
+abstract class ScheduleUtility {
+
+    private ScheduleUtility(){ }
+
+    private static ThreadFactory daemon(final String name){
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(2, daemon("simplehttpserver-file-scheduler"));
+
+    // bounded pool for reading files, tasks never wait on other tasks
+    private static final ExecutorService loader = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), daemon("simplehttpserver-file-loader"));
+
+    static{
+        executor.setRemoveOnCancelPolicy(true); // don't keep cancelled tasks for removed files
+    }
+
+    static CompletableFuture<Void> runAsync(final Runnable runnable){
+        return CompletableFuture.runAsync(runnable, loader);
+    }
+
+    static <T> CompletableFuture<T> supplyAsync(final Supplier<T> supplier){
+        return CompletableFuture.supplyAsync(supplier, loader);
+    }
+
+    // tasks are kept in a queue ordered by delay
+    static ScheduledFuture<?> schedule(final Runnable runnable, final long delay){
+        return executor.schedule(runnable, delay, TimeUnit.MILLISECONDS);
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver.handler.file;
+
+import java.io.*;
+
+/**
+ * A {@link FileAdapter} that transforms file content as a stream, so files can be adapted without reading the whole file into memory.
+ * <br>
+ * If the adapter is not {@link #isCacheable() cacheable}, files are read and transformed on every request and written directly to the response. Conditional requests use a weak <code>ETag</code> and <code>Last-Modified</code> from the file, and range requests are not supported.
+ * <br>
+ * If the adapter is cacheable, files are transformed into memory using {@link #getBytes(File, byte[])} and follow the {@link FileOptions.FileLoadingOption} like any other adapter.
+ *
+ * @see FileAdapter
+ * @see FileHandler
+ * @since 5.1.0
+ * @version 5.1.0
+ * @author Katsute
+ */
+public interface StreamingFileAdapter extends FileAdapter {
+
+    /**
+     * Writes the adapted content of a file.
+     *
+     * @param file file
+     * @param IN file content
+     * @param OUT adapted content
+     *
+     * @throws IOException IO exception
+     *
+     * @since 5.1.0
+     */
+    void transform(final File file, final InputStream IN, final OutputStream OUT) throws IOException;
+
+    /**
+     * Returns if the adapted content can be kept in memory. If false, files are transformed on every request. By default this returns false.
+     *
+     * @return if adapted content can be cached
+     *
+     * @since 5.1.0
+     */
+    default boolean isCacheable(){
+        return false;
+    }
+
+    /**
+     * Returns the adapted content using {@link #transform(File, InputStream, OutputStream)}.
+     *
+     * @param file file
+     * @param bytes file content in bytes
+     * @return byte array
+     *
+     * @since 5.1.0
+     */
+    @Override
+    default byte[] getBytes(final File file, final byte[] bytes){
+        final ByteArrayOutputStream OUT = new ByteArrayOutputStream(bytes.length);
+        try{
+            transform(file, new ByteArrayInputStream(bytes), OUT);
+        }catch(final IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return OUT.toByteArray();
+    }
+
+}
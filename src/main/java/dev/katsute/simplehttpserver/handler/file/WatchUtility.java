@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2024 Katsute <https://github.com/Katsute>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package dev.katsute.simplehttpserver.handler.file;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+// single watch service and thread shared by all file handlers
+abstract class WatchUtility {
+
+    private WatchUtility(){ }
+
+    interface Listener {
+
+        // path is null on overflow, directory is removed from the watch service if invalid
+        void onEvent(final Path directory, final WatchEvent.Kind<?> kind, final Path path);
+
+    }
+
+    // registering the same directory again returns the same key
+    private static final Map<WatchKey,CopyOnWriteArrayList<Listener>> listeners = new ConcurrentHashMap<>();
+
+    private static WatchService service = null;
+
+    static synchronized WatchKey register(final Path directory, final Listener listener) throws IOException {
+        if(service == null){
+            service = FileSystems.getDefault().newWatchService();
+            final Thread thread = new Thread(WatchUtility::run, "simplehttpserver-file-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        final WatchKey key = directory.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        listeners.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).addIfAbsent(listener);
+        return key;
+    }
+
+    // key is only cancelled once it has no listeners
+    static synchronized void cancel(final WatchKey key, final Listener listener){
+        if(key == null) return;
+        final List<Listener> list = listeners.get(key);
+        if(list != null && list.remove(listener) && list.isEmpty()){
+            listeners.remove(key);
+            key.cancel();
+        }
+    }
+
+    private static void run(){
+        while(true){
+            final WatchKey key;
+            try{
+                key = service.take();
+            }catch(final InterruptedException | ClosedWatchServiceException ignored){
+                return;
+            }
+
+            final Path directory = (Path) key.watchable();
+            final List<Listener> list = listeners.get(key);
+            for(final WatchEvent<?> event : key.pollEvents()){
+                if(list == null) continue;
+                final Path path = event.kind() == OVERFLOW ? null : directory.resolve((Path) event.context());
+                for(final Listener listener : list)
+                    try{
+                        listener.onEvent(directory, event.kind(), path);
+                    }catch(final Throwable ignored){ }
+            }
+            if(!key.reset()) // directory no longer accessible
+                listeners.remove(key);
+        }
+    }
+
+}
@@ -9,6 +9,26 @@
  *         {@link dev.katsute.simplehttpserver.HttpSessionHandler}
  *         <ul>
  *             <li>{@link dev.katsute.simplehttpserver.HttpSession}</li>
+ *             <li>{@link dev.katsute.simplehttpserver.SessionOptions}</li>
+ *             <li>
+ *                 {@link dev.katsute.simplehttpserver.SessionStore}
+ *                 <ul>
+ *                     <li>{@link dev.katsute.simplehttpserver.MemorySessionStore}</li>
+ *                     <li>{@link dev.katsute.simplehttpserver.FileSessionStore}</li>
+ *                 </ul>
+ *             </li>
+ *         </ul>
+ *     </li>
+ *     <li>
+ *         {@link dev.katsute.simplehttpserver.CompressionOptions}
+ *         <ul>
+ *             <li>{@link dev.katsute.simplehttpserver.CompressionUtility}</li>
+ *         </ul>
+ *     </li>
+ *     <li>
+ *         {@link dev.katsute.simplehttpserver.ServerExecutor}
+ *         <ul>
+ *             <li>{@link dev.katsute.simplehttpserver.ExecutorOptions}</li>
  *         </ul>
  *     </li>
  * </ul>
@@ -44,7 +64,9 @@
  *         {@link dev.katsute.simplehttpserver.handler.file.FileHandler}
  *         <ul>
  *              <li>{@link dev.katsute.simplehttpserver.handler.file.FileAdapter}</li>
+ *              <li>{@link dev.katsute.simplehttpserver.handler.file.FileCache}</li>
  *              <li>{@link dev.katsute.simplehttpserver.handler.file.FileOptions}</li>
+ *              <li>{@link dev.katsute.simplehttpserver.handler.file.StreamingFileAdapter}</li>
  *         </ul>
  *     </li>
  *     <li>
@@ -24,6 +24,13 @@ public class Requests {
         }
     }
 
+    public static HttpURLConnection openConn(final String URL, final String header, final String value){
+        final HttpURLConnection conn = openConn(URL);
+        if(value != null)
+            conn.setRequestProperty(header, value);
+        return conn;
+    }
+
     public static int getCode(final String URL){
         try{
             return openConn(URL).getResponseCode();
@@ -0,0 +1,115 @@
+package dev.katsute.simplehttpserver;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class SessionExpiryTests {
+
+    private static SimpleHttpServer server;
+
+    private static final AtomicLong offset = new AtomicLong();
+    private static final HttpSessionHandler idle = new HttpSessionHandler("__session-idle", new SessionOptions.Builder().setIdleTimeout(60 * 1000).build(), new MemorySessionStore(), () -> System.currentTimeMillis() + offset.get());
+    private static final HttpSessionHandler capped = new HttpSessionHandler("__session-capped", new SessionOptions.Builder().setMaxSessions(2).build());
+
+    @BeforeAll
+    static void beforeAll() throws IOException{
+        server = SimpleHttpServer.create(8080);
+
+        server.createContext("idle", (SimpleHttpHandler) e -> e.send(idle.getSession(e.getHttpExchange()).getSessionID()));
+        server.createContext("update", (SimpleHttpHandler) e -> {
+            final HttpSession session = idle.getSession(e.getHttpExchange());
+            session.update();
+            e.send(session.getSessionID());
+        });
+        server.createContext("attribute", (SimpleHttpHandler) e -> {
+            final HttpSession session = idle.getSession(e.getHttpExchange());
+            final Integer count = session.getAttribute("count", Integer.class);
+            session.setAttribute("count", count == null ? 1 : count + 1);
+            e.send(String.valueOf(session.getAttribute("count")));
+        });
+        server.createContext("capped", (SimpleHttpHandler) e -> e.send(capped.getSession(e.getHttpExchange()).getSessionID()));
+
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll(){
+        server.stop();
+    }
+
+    @BeforeEach
+    final void beforeEach(){
+        Requests.Cookies.getCookieStore().removeAll();
+        offset.set(0);
+    }
+
+    // moves the handler past the idle timeout
+    private static void advance(){
+        offset.set(2 * 60 * 1000);
+    }
+
+    @Test
+    final void testIdle(){
+        final String id = Requests.getBody("http://localhost:8080/idle");
+        Assertions.assertEquals(id, Requests.getBody("http://localhost:8080/idle"));
+
+        advance();
+
+        Assertions.assertNotEquals(id, Requests.getBody("http://localhost:8080/idle"));
+    }
+
+    @Test
+    final void testReap(){
+        final String id = Requests.getBody("http://localhost:8080/idle");
+        Assertions.assertNotNull(idle.getSessionStore().get(id));
+
+        advance();
+        idle.reap();
+
+        Assertions.assertNull(idle.getSessionStore().get(id));
+    }
+
+    @Test
+    final void testClock(){
+        offset.set(60 * 60 * 1000);
+        final long now = System.currentTimeMillis();
+        final String id = Requests.getBody("http://localhost:8080/update");
+        Assertions.assertTrue(idle.getSessionStore().get(id).getLastAccessed() >= now + 60 * 60 * 1000, "Expected sessions to use the handler clock");
+    }
+
+    @Test
+    final void testAttributeExpiry(){
+        Assertions.assertEquals("1", Requests.getBody("http://localhost:8080/attribute"));
+        Assertions.assertEquals("2", Requests.getBody("http://localhost:8080/attribute"));
+
+        advance();
+
+        Assertions.assertEquals("1", Requests.getBody("http://localhost:8080/attribute"));
+    }
+
+    @Test
+    final void testDefault(){
+        Assertions.assertEquals(0, new SessionOptions().idleTimeout);
+    }
+
+    @Test
+    final void testMaxSessions(){
+        final List<String> ids = new ArrayList<>();
+        for(int i = 0; i < 3; i++){
+            Requests.Cookies.getCookieStore().removeAll();
+            ids.add(Requests.getBody("http://localhost:8080/capped"));
+        }
+
+        Assertions.assertEquals(ids.get(2), Requests.getBody("http://localhost:8080/capped"));
+
+        Requests.Cookies.getCookieStore().removeAll();
+        final HttpURLConnection conn = Requests.openConn("http://localhost:8080/capped");
+        conn.setRequestProperty("Cookie", "__session-capped=\"" + ids.get(0) + '"');
+        Assertions.assertNotEquals(ids.get(0), Requests.getBody(conn), "Expected oldest session to be evicted");
+    }
+
+}
@@ -4,6 +4,8 @@ import dev.katsute.simplehttpserver.*;
 import org.junit.jupiter.api.*;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.atomic.AtomicReference;
 
 final class ExchangeGetTests {
@@ -26,7 +28,7 @@ final class ExchangeGetTests {
 
         server.start();
 
-        Requests.getBody("http://localhost:8080/exchange?key=value&alt=a%2B%3F%26%7D");
+        Requests.getBody("http://localhost:8080/exchange?key=value&alt=a%2B%3F%26%7D&multi=1&multi=2+%E2%9C%93&eq=a=b&flag");
         exchange = exchangeRef.get();
 
         server.stop();
@@ -38,6 +40,13 @@ final class ExchangeGetTests {
         Assertions.assertTrue(exchange.hasGet());
         Assertions.assertEquals("value", exchange.getGetMap().get("key"));
         Assertions.assertEquals("a+?&}", exchange.getGetMap().get("alt"));
+        Assertions.assertEquals("a=b", exchange.getGetMap().get("eq"));
+        Assertions.assertEquals("", exchange.getGetMap().get("flag"));
+        Assertions.assertEquals("2 \u2713", exchange.getGetMap().get("multi"));
+        Assertions.assertEquals(Arrays.asList("1", "2 \u2713"), exchange.getGetValues().get("multi"));
+        Assertions.assertEquals(Collections.singletonList("value"), exchange.getGetValues().get("key"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> exchange.getGetMap().put("key", "value"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> exchange.getGetValues().get("multi").add("3"));
     }
 
 }
\ No newline at end of file
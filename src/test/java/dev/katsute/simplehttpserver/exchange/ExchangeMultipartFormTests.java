@@ -3,11 +3,13 @@ package dev.katsute.simplehttpserver.exchange;
 import dev.katsute.simplehttpserver.*;
 import org.junit.jupiter.api.*;
 
-import java.io.IOException;
-import java.io.OutputStream;
+import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -17,6 +19,14 @@ final class ExchangeMultipartFormTests {
 
     private static SimpleHttpExchange exchange;
 
+    private static final byte[] binary = new byte[64 * 1024];
+    private static byte[] stored;
+    private static Path storedPath;
+    private static boolean storedDeleted;
+    private static String lowercase;
+    private static Path unclosedPath;
+    private static boolean unclosedDeleted;
+
     private static final String boundary = "d74496d66958873e";
 
     private static final String key = "key", value = "value";
@@ -34,6 +44,38 @@ final class ExchangeMultipartFormTests {
             e.close();
         });
 
+        for(int i = 0; i < binary.length; i++)
+            binary[i] = (byte) i;
+
+        server.createContext("binary", (SimpleHttpHandler) e -> {
+            final FileRecord record = e.getMultipartFormData(1024).getEntry(fkey).asFile();
+            storedPath = record.getPath();
+            try(final InputStream IN = record.getInputStream()){
+                final ByteArrayOutputStream OUT = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[1024];
+                int len;
+                while((len = IN.read(buffer)) != -1)
+                    OUT.write(buffer, 0, len);
+                stored = OUT.toByteArray();
+            }
+            e.send(200);
+            e.close();
+            storedDeleted = !Files.exists(storedPath);
+        });
+
+        server.createContext("lowercase", (SimpleHttpHandler) e -> {
+            final FileRecord record = e.getMultipartFormData().getEntry(fkey).asFile();
+            lowercase = record.getContentType() + ' ' + record.getFileName();
+            e.send(200);
+            e.close();
+        });
+
+        server.createContext("unclosed", (SimpleHttpHandler) e -> {
+            unclosedPath = e.getMultipartFormData(1024).getEntry(fkey).asFile().getPath();
+            e.send(200);
+            e.getHttpExchange().close(); // simple exchange is never closed
+        });
+
         server.start();
 
         final StringBuilder OUT = new StringBuilder();
@@ -66,6 +108,83 @@ final class ExchangeMultipartFormTests {
             Requests.getBody(conn);
         }
 
+        {
+            final HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/binary").openConnection();
+            conn.setConnectTimeout(5000);
+            conn.setReadTimeout(5000);
+            conn.setRequestProperty("Content-type", "multipart/form-data; boundary=" + boundary);
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+
+            try(final OutputStream OS = conn.getOutputStream()){
+                OS.write(("--" + boundary + "\r\n" +
+                    "Content-Disposition: form-data; name=\"" + fkey + "\"; filename=\"" + filename + "\"\r\n" +
+                    "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                OS.write(binary);
+                OS.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            }
+
+            Requests.getBody(conn);
+        }
+
+        {
+            final HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/lowercase").openConnection();
+            conn.setConnectTimeout(5000);
+            conn.setReadTimeout(5000);
+            conn.setRequestProperty("Content-type", "multipart/form-data; boundary=" + boundary);
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+
+            try(final OutputStream OS = conn.getOutputStream()){
+                OS.write(("--" + boundary + "\r\n" +
+                    "content-disposition: form-data; name=\"" + fkey + "\"; filename=\"" + filename + "\"\r\n" +
+                    "content-type: " + contentType + "\r\n\r\n" +
+                    fvalue + "\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            }
+
+            Requests.getBody(conn);
+        }
+
+        {
+            final HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/unclosed").openConnection();
+            conn.setConnectTimeout(5000);
+            conn.setReadTimeout(5000);
+            conn.setRequestProperty("Content-type", "multipart/form-data; boundary=" + boundary);
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+
+            try(final OutputStream OS = conn.getOutputStream()){
+                OS.write(("--" + boundary + "\r\n" +
+                    "Content-Disposition: form-data; name=\"" + fkey + "\"; filename=\"" + filename + "\"\r\n" +
+                    "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                OS.write(binary);
+                OS.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            }
+
+            Requests.getBody(conn);
+        }
+
+        // files of unclosed exchanges are deleted on a later multipart request once the exchange is collected
+        for(int i = 0; i < 20 && !unclosedDeleted; i++){
+            System.gc();
+            final HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/lowercase").openConnection();
+            conn.setConnectTimeout(5000);
+            conn.setReadTimeout(5000);
+            conn.setRequestProperty("Content-type", "multipart/form-data; boundary=" + boundary);
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+
+            try(final OutputStream OS = conn.getOutputStream()){
+                OS.write(("--" + boundary + "\r\n" +
+                    "Content-Disposition: form-data; name=\"" + fkey + "\"; filename=\"" + filename + "\"\r\n" +
+                    "Content-Type: " + contentType + "\r\n\r\n" +
+                    fvalue + "\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            }
+
+            Requests.getBody(conn);
+            unclosedDeleted = !Files.exists(unclosedPath);
+        }
+
         exchange = exchangeRef.get();
 
         server.stop();
@@ -98,4 +217,22 @@ final class ExchangeMultipartFormTests {
         Assertions.assertEquals(fvalue, new String(((FileRecord) exchange.getMultipartFormData().getEntry(fkey)).getBytes()));
     }
 
-}
\ No newline at end of file
+    @Test
+    final void testBinary(){
+        Assertions.assertNotNull(storedPath);
+        Assertions.assertTrue(Arrays.equals(binary, stored));
+        Assertions.assertTrue(storedDeleted);
+    }
+
+    @Test
+    final void testLowercaseHeaders(){
+        Assertions.assertEquals(contentType + ' ' + filename, lowercase);
+    }
+
+    @Test
+    final void testUnclosed(){
+        Assertions.assertNotNull(unclosedPath);
+        Assertions.assertTrue(unclosedDeleted);
+    }
+
+}
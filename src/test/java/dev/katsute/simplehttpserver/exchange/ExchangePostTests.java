@@ -1,13 +1,14 @@
 package dev.katsute.simplehttpserver.exchange;
 
+import com.sun.net.httpserver.HttpHandler;
 import dev.katsute.simplehttpserver.*;
 import org.junit.jupiter.api.*;
 
-import java.io.IOException;
-import java.io.OutputStream;
+import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReference;
 
 final class ExchangePostTests {
@@ -15,6 +16,8 @@ final class ExchangePostTests {
     private static SimpleHttpServer server;
 
     private static SimpleHttpExchange exchange;
+    private static String streamed;
+    private static String threaded;
 
     @BeforeAll
     static void beforeAll() throws IOException{
@@ -28,6 +31,40 @@ final class ExchangePostTests {
             e.close();
         });
 
+        AtomicReference<String> streamRef = new AtomicReference<>();
+
+        server.createContext("stream", (SimpleHttpHandler) e -> {
+            final ByteArrayOutputStream OUT = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            int len;
+            try(final InputStream IN = e.getRequestBody()){
+                while((len = IN.read(buffer)) != -1)
+                    OUT.write(buffer, 0, len);
+            }
+            streamRef.set(OUT.toString("UTF-8"));
+            e.send(200);
+            e.close();
+        });
+
+        AtomicReference<String> threadRef = new AtomicReference<>();
+
+        server.createContext("thread", (HttpHandler) e -> { // body read on one thread and again on another
+            ((SimpleHttpHandler) simple -> simple.getRawPost()).handle(e);
+            final Thread thread = new Thread(() -> {
+                try{
+                    ((SimpleHttpHandler) simple -> {
+                        threadRef.set(simple.getRawPost());
+                        simple.send(200);
+                        simple.close();
+                    }).handle(e);
+                }catch(final IOException ignored){ }
+            });
+            thread.start();
+            try{
+                thread.join();
+            }catch(final InterruptedException ignored){ }
+        });
+
         server.start();
 
         {
@@ -38,7 +75,7 @@ final class ExchangePostTests {
             conn.setDoOutput(true);
 
             try(final OutputStream OS = conn.getOutputStream()){
-                final byte[] bytes = "key=value&alt=a%2B%3F%26%7D".getBytes(StandardCharsets.UTF_8);
+                final byte[] bytes = "key=value&alt=a%2B%3F%26%7D&multi=1&multi=2".getBytes(StandardCharsets.UTF_8);
                 OS.write(bytes, 0, bytes.length);
             }
 
@@ -48,7 +85,39 @@ final class ExchangePostTests {
             Requests.getBody(conn);
         }
 
+        {
+            final HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/stream").openConnection();
+            conn.setConnectTimeout(5000);
+            conn.setReadTimeout(5000);
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+
+            try(final OutputStream OS = conn.getOutputStream()){
+                final byte[] bytes = "key=value".getBytes(StandardCharsets.UTF_8);
+                OS.write(bytes, 0, bytes.length);
+            }
+
+            Requests.getBody(conn);
+        }
+
+        {
+            final HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/thread").openConnection();
+            conn.setConnectTimeout(5000);
+            conn.setReadTimeout(5000);
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+
+            try(final OutputStream OS = conn.getOutputStream()){
+                final byte[] bytes = "key=value".getBytes(StandardCharsets.UTF_8);
+                OS.write(bytes, 0, bytes.length);
+            }
+
+            Requests.getBody(conn);
+        }
+
         exchange = exchangeRef.get();
+        streamed = streamRef.get();
+        threaded = threadRef.get();
 
         server.stop();
     }
@@ -59,8 +128,19 @@ final class ExchangePostTests {
         Assertions.assertTrue(exchange.hasPost());
         Assertions.assertEquals("value", exchange.getPostMap().get("key"));
         Assertions.assertEquals("a+?&}", exchange.getPostMap().get("alt"));
+        Assertions.assertEquals(Arrays.asList("1", "2"), exchange.getPostValues().get("multi"));
 
         Assertions.assertNull(exchange.getMultipartFormData());
     }
 
+    @Test
+    final void testStream(){
+        Assertions.assertEquals("key=value", streamed);
+    }
+
+    @Test
+    final void testThread(){
+        Assertions.assertEquals("key=value", threaded, "Expected exchange passed to another thread to share the body");
+    }
+
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.net.URL;
 import java.nio.file.Files;
 
 final class ExchangeSendTests {
@@ -15,6 +16,7 @@ final class ExchangeSendTests {
 
     private static final int testCode = HttpURLConnection.HTTP_ACCEPTED;
     private static final String testContent = String.valueOf(System.currentTimeMillis());
+    private static final String largeContent = new String(new char[100_000]).replace("\0", testContent);
 
     @TempDir
     private static File dir = new File(testContent);
@@ -60,6 +62,23 @@ final class ExchangeSendTests {
             e.close();
         });
 
+        server.createContext("string/large/gzip", (SimpleHttpHandler) e -> {
+            e.send(largeContent, true);
+            e.close();
+        });
+
+        final File largeFile = new File(dir, testContent + ".large");
+        Files.write(largeFile.toPath(), largeContent.getBytes());
+        server.createContext("file/large", (SimpleHttpHandler) e -> {
+            e.send(largeFile);
+            e.close();
+        });
+
+        server.createContext("file/large/gzip", (SimpleHttpHandler) e -> {
+            e.send(largeFile, true);
+            e.close();
+        });
+
         server.start();
     }
 
@@ -85,10 +104,46 @@ final class ExchangeSendTests {
         Assertions.assertEquals(testContent, Requests.getBody("http://localhost:8080/string/gzip"));
     }
 
+    @Test
+    final void testCompression() throws IOException{
+        {
+            final HttpURLConnection conn = open("http://localhost:8080/string/large/gzip", "gzip");
+            Assertions.assertEquals("gzip", conn.getContentEncoding());
+            Assertions.assertEquals("Accept-Encoding", conn.getHeaderField("Vary"));
+            Assertions.assertNull(conn.getHeaderField("Accept-Encoding"));
+            Assertions.assertEquals(largeContent, Requests.getBody(conn));
+        }
+        {
+            final HttpURLConnection conn = open("http://localhost:8080/string/large/gzip", null);
+            Assertions.assertNull(conn.getContentEncoding());
+            Assertions.assertEquals(largeContent, Requests.getBody(conn));
+        }
+        {
+            final HttpURLConnection conn = open("http://localhost:8080/file/large/gzip", "gzip");
+            Assertions.assertEquals("gzip", conn.getContentEncoding());
+            Assertions.assertEquals(largeContent, Requests.getBody(conn));
+        }
+        {
+            final HttpURLConnection conn = open("http://localhost:8080/string/gzip", "gzip");
+            Assertions.assertNull(conn.getContentEncoding()); // below threshold
+            Assertions.assertEquals(testContent, Requests.getBody(conn));
+        }
+    }
+
+    private static HttpURLConnection open(final String url, final String encoding) throws IOException{
+        final HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(5000);
+        conn.setReadTimeout(5000);
+        if(encoding != null)
+            conn.setRequestProperty("Accept-Encoding", encoding);
+        return conn;
+    }
+
     @Test
     final void testFile(){
         Assertions.assertEquals(testContent, Requests.getBody("http://localhost:8080/file"));
         Assertions.assertEquals(testContent, Requests.getBody("http://localhost:8080/file/gzip"));
+        Assertions.assertEquals(largeContent, Requests.getBody("http://localhost:8080/file/large"));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,242 @@
+package dev.katsute.simplehttpserver.exchange;
+
+import dev.katsute.simplehttpserver.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class SessionStoreTests {
+
+    private static SimpleHttpServer server;
+
+    @TempDir
+    private static File dir = new File(String.valueOf(System.currentTimeMillis()));
+
+    private static HttpSessionHandler handler;
+
+    @BeforeAll
+    static void beforeAll() throws IOException{
+        server = SimpleHttpServer.create(8080);
+
+        server.createContext("session", (SimpleHttpHandler) e -> {
+            final HttpSession session = handler.getSession(e.getHttpExchange());
+            session.update();
+            e.send(session.getSessionID());
+        });
+
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll(){
+        server.stop();
+    }
+
+    private static String get(final String id){
+        Requests.Cookies.getCookieStore().removeAll();
+        final HttpURLConnection conn = Requests.openConn("http://localhost:8080/session");
+        if(id != null)
+            conn.setRequestProperty("Cookie", "__session-id=\"" + id + '"');
+        return Requests.getBody(conn);
+    }
+
+    @Test
+    final void testMemory(){
+        final MemorySessionStore store = new MemorySessionStore();
+        handler = new HttpSessionHandler("__session-id", new SessionOptions(), store);
+
+        final String id = get(null);
+        Assertions.assertEquals(1, store.size());
+        Assertions.assertNotNull(store.get(id));
+        Assertions.assertEquals(id, get(id));
+        Assertions.assertEquals(1, store.size());
+    }
+
+    @Test
+    final void testFile() throws IOException{
+        final File file = new File(dir, "sessions");
+
+        final String id, expired;
+        final long lastAccessed;
+        try(final FileSessionStore store = new FileSessionStore(file)){
+            handler = new HttpSessionHandler("__session-id", new SessionOptions(), store);
+
+            id = get(null);
+            expired = get(null);
+            Assertions.assertEquals(id, get(id));
+            lastAccessed = store.get(id).getLastAccessed();
+            Assertions.assertTrue(store.expire(store.get(expired)));
+        }
+
+        try(final FileSessionStore store = new FileSessionStore(file)){
+            handler = new HttpSessionHandler("__session-id", new SessionOptions(), store);
+
+            Assertions.assertEquals(1, store.size());
+            Assertions.assertNull(store.get(expired));
+            Assertions.assertNotNull(store.get(id));
+            Assertions.assertEquals(lastAccessed, store.get(id).getLastAccessed());
+            Assertions.assertEquals(id, get(id));
+        }
+    }
+
+    @Test
+    final void testGrow() throws IOException{
+        final File file = new File(dir, "grow");
+
+        final long now = System.currentTimeMillis();
+        try(final FileSessionStore store = new FileSessionStore(file)){
+            for(int i = 0; i < 2000; i++)
+                Assertions.assertTrue(store.add(HttpSession.create(String.valueOf(i), now, now, store)));
+            for(int i = 0; i < 1000; i++)
+                Assertions.assertTrue(store.expire(store.get(String.valueOf(i))));
+        }
+
+        try(final FileSessionStore store = new FileSessionStore(file)){
+            Assertions.assertEquals(1000, store.size());
+            for(int i = 0; i < 1000; i++)
+                Assertions.assertNull(store.get(String.valueOf(i)));
+            for(int i = 1000; i < 2000; i++)
+                Assertions.assertEquals(now, store.get(String.valueOf(i)).getCreationTime());
+        }
+    }
+
+    @Test
+    final void testTruncated() throws IOException{
+        final File file = new File(dir, "truncated");
+
+        final long now = System.currentTimeMillis();
+        try(final FileSessionStore store = new FileSessionStore(file)){
+            for(int i = 0; i < 100; i++)
+                store.add(HttpSession.create(String.valueOf(i), now, now, store));
+        }
+
+        try(final RandomAccessFile IN = new RandomAccessFile(file, "rw")){
+            IN.setLength(IN.length() / 2 + 50); // cut off part way through a session
+        }
+
+        final int size;
+        try(final FileSessionStore store = new FileSessionStore(file)){
+            size = store.size();
+            Assertions.assertTrue(size > 0 && size < 100, "Expected sessions in the truncated part to be dropped");
+            int found = 0;
+            for(int i = 0; i < 100; i++)
+                if(store.get(String.valueOf(i)) != null)
+                    found++;
+            Assertions.assertEquals(size, found);
+            Assertions.assertTrue(store.add(HttpSession.create("new", now, now, store)));
+        }
+
+        try(final FileSessionStore store = new FileSessionStore(file)){
+            Assertions.assertEquals(size + 1, store.size());
+        }
+    }
+
+    @Test
+    final void testCorrupt() throws IOException{
+        final File file = new File(dir, "corrupt");
+
+        final byte[] bytes = new byte[10000];
+        Arrays.fill(bytes, (byte) 0x7F);
+        Files.write(file.toPath(), bytes);
+
+        Assertions.assertThrows(IOException.class, () -> new FileSessionStore(file), "Expected a file that is not a session store to be rejected");
+        Assertions.assertArrayEquals(bytes, Files.readAllBytes(file.toPath()), "Expected a file that is not a session store to be unchanged");
+
+        final File table = new File(dir, "corrupt-table");
+        final long now = System.currentTimeMillis();
+        try(final FileSessionStore store = new FileSessionStore(table)){
+            store.add(HttpSession.create("session", now, now, store));
+        }
+        try(final RandomAccessFile IN = new RandomAccessFile(table, "rw")){
+            final byte[] slots = new byte[(int) IN.length() - 64];
+            Arrays.fill(slots, (byte) 0x7F);
+            IN.seek(64);
+            IN.write(slots); // corrupt the table after the header
+        }
+
+        try(final FileSessionStore store = new FileSessionStore(table)){
+            Assertions.assertEquals(0, store.size());
+            handler = new HttpSessionHandler("__session-id", new SessionOptions(), store);
+
+            final String id = get(null);
+            Assertions.assertEquals(id, get(id));
+        }
+    }
+
+    @Test
+    final void testEvict() throws IOException{
+        final long old = System.currentTimeMillis() - 5 * 60 * 1000;
+        try(final FileSessionStore store = new FileSessionStore(new File(dir, "evict"), Long.MAX_VALUE)){
+            store.add(HttpSession.create("session", old, old, store));
+
+            final HttpSession session = store.get("session");
+            store.flush();
+            Assertions.assertSame(session, store.get("session"), "Expected a session in use to be kept in memory");
+
+            store.flush();
+            store.flush();
+            Assertions.assertNotSame(session, store.get("session"), "Expected an unused session to be removed from memory");
+
+            final HttpSession attributes = store.get("session");
+            attributes.setAttribute("key", "value");
+            store.flush();
+            store.flush();
+            Assertions.assertSame(attributes, store.get("session"), "Expected a session with attributes to be kept in memory");
+        }
+    }
+
+    @Test
+    final void testCustom(){
+        final Map<String,long[]> saved = new ConcurrentHashMap<>();
+        final SessionStore store = new SessionStore(){
+
+            @Override
+            public final HttpSession get(final String sessionID){
+                final long[] times = saved.get(sessionID);
+                return times == null ? null : HttpSession.create(sessionID, times[0], times[1], this);
+            }
+
+            @Override
+            public final boolean add(final HttpSession session){
+                return saved.putIfAbsent(session.getSessionID(), new long[]{session.getCreationTime(), session.getLastAccessed()}) == null;
+            }
+
+            @Override
+            public final void touch(final HttpSession session){
+                saved.put(session.getSessionID(), new long[]{session.getCreationTime(), session.getLastAccessed()});
+            }
+
+            @Override
+            public final boolean expire(final HttpSession session){
+                return saved.remove(session.getSessionID()) != null;
+            }
+
+            @Override
+            public final int size(){
+                return saved.size();
+            }
+
+            @Override
+            public final Iterator<HttpSession> iterator(){
+                final List<HttpSession> sessions = new ArrayList<>();
+                for(final String id : saved.keySet())
+                    sessions.add(get(id));
+                return sessions.iterator();
+            }
+
+        };
+        handler = new HttpSessionHandler("__session-id", new SessionOptions(), store);
+
+        final String id = get(null);
+        final long lastAccessed = saved.get(id)[1];
+        Assertions.assertEquals(id, get(id));
+        Assertions.assertEquals(store.get(id), store.get(id));
+        Assertions.assertTrue(saved.get(id)[1] >= lastAccessed);
+    }
+
+}
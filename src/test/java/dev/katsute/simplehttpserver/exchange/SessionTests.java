@@ -5,6 +5,8 @@ import org.junit.jupiter.api.*;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.concurrent.atomic.AtomicReference;
 
 final class SessionTests {
@@ -57,4 +59,25 @@ final class SessionTests {
         Assertions.assertTrue(session.getLastAccessed() < System.currentTimeMillis());
     }
 
+    @Test
+    final void testAttributes(){
+        final HttpSession session = sh.getSession(exchange);
+        Assertions.assertNull(session.getAttribute("key"));
+
+        session.setAttribute("key", "value");
+        session.setAttribute("count", 1);
+        Assertions.assertEquals("value", session.getAttribute("key"));
+        Assertions.assertEquals(1, session.getAttribute("count", Integer.class));
+        Assertions.assertThrows(ClassCastException.class, () -> session.getAttribute("key", Integer.class));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("key", "count")), session.getAttributeNames());
+
+        session.setAttribute("count", 2);
+        Assertions.assertEquals(2, session.getAttribute("count", Integer.class));
+
+        Assertions.assertEquals("value", session.removeAttribute("key"));
+        Assertions.assertNull(session.getAttribute("key"));
+        session.setAttribute("count", null);
+        Assertions.assertTrue(session.getAttributeNames().isEmpty());
+    }
+
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import dev.katsute.simplehttpserver.*;
 import org.junit.jupiter.api.*;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
 
 final class PredicateTests {
 
@@ -39,6 +40,24 @@ final class PredicateTests {
         Assertions.assertEquals("false", Requests.getBody("http://localhost:8080/predicate/false"));
     }
 
+    @Test
+    final void testNested(){
+        final AtomicReference<SimpleHttpExchange> outer = new AtomicReference<>();
+        final SimpleHttpHandler inner = exchange -> exchange.send(String.valueOf(exchange == outer.get()));
+
+        server.createContext("predicate/nested", new PredicateHandler(
+            exchange -> {
+                outer.set(exchange);
+                return exchange.getRequestURI().getQuery() == null;
+            },
+            inner, // passed the wrapper
+            exchange -> inner.handle(((SimpleHttpExchange) exchange).getHttpExchange()) // passed the unwrapped exchange
+        ));
+
+        Assertions.assertEquals("true", Requests.getBody("http://localhost:8080/predicate/nested"));
+        Assertions.assertEquals("true", Requests.getBody("http://localhost:8080/predicate/nested?raw"));
+    }
+
     @Test
     final void testRoot(){
         server.createContext("/", new RootHandler(
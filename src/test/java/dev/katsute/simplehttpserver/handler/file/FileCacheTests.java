@@ -0,0 +1,72 @@
+package dev.katsute.simplehttpserver.handler.file;
+
+import dev.katsute.simplehttpserver.Requests;
+import dev.katsute.simplehttpserver.SimpleHttpServer;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+final class FileCacheTests {
+
+    private static SimpleHttpServer server;
+
+    private static final String testContent = "0123456789";
+
+    @TempDir
+    private static File dir = new File(testContent);
+
+    private static final FileCache cache = FileCache.getCache();
+    private static final long budget = cache.getBudget();
+    private static final FileHandler handler = new FileHandler();
+
+    @BeforeAll
+    static void beforeAll() throws IOException{
+        server = SimpleHttpServer.create(8080);
+
+        final File file = new File(dir, "a");
+        final File file2 = new File(dir, "b");
+        Files.write(file.toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+        Files.write(file2.toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+
+        cache.setBudget(cache.getSize() + 15);
+
+        final FileOptions options = new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.PRELOAD).build();
+        handler.addFile(file, options);
+        handler.addFile(file2, options);
+
+        server.createContext("file", handler);
+
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll(){
+        server.stop();
+        handler.removeFile("a");
+        handler.removeFile("b");
+        cache.setBudget(budget);
+    }
+
+    @Test
+    final void testEviction(){
+        final long evictions = cache.getEvictions();
+        final long misses = cache.getMisses();
+
+        Assertions.assertEquals(testContent, Requests.getBody("http://localhost:8080/file/a"));
+        Assertions.assertEquals(testContent, Requests.getBody("http://localhost:8080/file/b"));
+
+        Assertions.assertTrue(cache.getEvictions() > evictions);
+        Assertions.assertTrue(cache.getMisses() > misses);
+        Assertions.assertTrue(cache.getSize() <= cache.getBudget());
+    }
+
+    @Test
+    final void testDefault(){
+        Assertions.assertEquals(Long.MAX_VALUE, budget, "Expected no budget by default");
+    }
+
+}
@@ -0,0 +1,62 @@
+package dev.katsute.simplehttpserver.handler.file;
+
+import dev.katsute.simplehttpserver.Requests;
+import dev.katsute.simplehttpserver.SimpleHttpServer;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.*;
+
+final class FileHandlerAsyncTests {
+
+    private static SimpleHttpServer server;
+
+    private static final String testContent = String.valueOf(System.currentTimeMillis());
+
+    @TempDir
+    private static File dir = new File(testContent);
+
+    private static final FileHandler handler = new FileHandler();
+
+    private static CompletableFuture<Void> loaded;
+
+    @BeforeAll
+    static void beforeAll() throws IOException{
+        server = SimpleHttpServer.create(8080);
+
+        for(int i = 0; i < 10; i++){
+            final File subdir = new File(dir, "sd" + i);
+            Assertions.assertTrue(subdir.mkdirs());
+            for(int j = 0; j < 10; j++)
+                Files.write(new File(subdir, i + "-" + j).toPath(), (testContent + i + j).getBytes(StandardCharsets.UTF_8));
+        }
+
+        loaded = handler.addDirectoryAsync(dir, "dir", new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.PRELOAD).setWalk(true).build());
+
+        server.createContext("", handler);
+
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll(){
+        server.stop();
+    }
+
+    @Test
+    final void testAsync() throws InterruptedException, ExecutionException, TimeoutException{
+        final String url = "http://localhost:8080/dir/sd3/3-4";
+        Assertions.assertEquals(testContent + 34, Requests.getBody(url)); // LIVE or loaded
+
+        loaded.get(10, TimeUnit.SECONDS);
+        for(int i = 0; i < 10; i++)
+            Assertions.assertTrue(handler.toString().contains(File.separator + "sd" + i + File.separator + i + "-9"));
+        Assertions.assertEquals(testContent + 34, Requests.getBody(url));
+        Assertions.assertNull(Requests.getBody("http://localhost:8080/dir/sd3/missing", true));
+    }
+
+}
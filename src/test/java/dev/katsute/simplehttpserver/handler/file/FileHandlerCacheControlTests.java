@@ -0,0 +1,71 @@
+package dev.katsute.simplehttpserver.handler.file;
+
+import dev.katsute.simplehttpserver.SimpleHttpServer;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+final class FileHandlerCacheControlTests {
+
+    private static SimpleHttpServer server;
+
+    private static final String testContent = String.valueOf(System.currentTimeMillis());
+
+    @TempDir
+    private static File dir = new File(testContent);
+
+    private static final FileHandler handler = new FileHandler();
+
+    @BeforeAll
+    static void beforeAll() throws IOException{
+        server = SimpleHttpServer.create(8080);
+
+        for(final String name : new String[]{"app.3f2a1b9c.js", "index.html", "log-20240101.txt"})
+            Files.write(new File(dir, name).toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+
+        handler.addDirectory(dir, "preload", new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.PRELOAD).setMaxAge(60).setFingerprint(true).build());
+        handler.addDirectory(dir, "live", new FileOptions.Builder().setMaxAge(60).setFingerprint(true).build());
+        handler.addDirectory(dir, "immutable", new FileOptions.Builder().setImmutable(true).build());
+        handler.addDirectory(dir, "none");
+
+        server.createContext("", handler);
+
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll(){
+        server.stop();
+    }
+
+    private static String getCacheControl(final String path) throws IOException{
+        final HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/" + path).openConnection();
+        conn.setConnectTimeout(5000);
+        conn.setReadTimeout(5000);
+        Assertions.assertEquals(200, conn.getResponseCode());
+        return conn.getHeaderField("Cache-Control");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings={"preload", "live"})
+    final void testFingerprint(final String context) throws IOException{
+        Assertions.assertEquals("max-age=31536000, immutable", getCacheControl(context + "/app.3f2a1b9c.js"));
+        Assertions.assertEquals("max-age=60", getCacheControl(context + "/index.html"));
+        Assertions.assertEquals("max-age=60", getCacheControl(context + "/log-20240101.txt"));
+    }
+
+    @Test
+    final void testImmutable() throws IOException{
+        Assertions.assertEquals("max-age=31536000, immutable", getCacheControl("immutable/index.html"));
+        Assertions.assertNull(getCacheControl("none/index.html"));
+    }
+
+}
@@ -56,11 +56,16 @@ final class FileHandlerCacheTests {
         Assertions.assertEquals(testContent + '0', Requests.getBody("http://localhost:8080/file/" + testContent + '0'));
 
         Assertions.assertFalse(handler.toString().contains("expired=true"));
+        Assertions.assertTrue(handler.getEntry(testContent).isLoaded());
+        Assertions.assertTrue(handler.getEntry(testContent + '0').isLoaded());
     }
 
     @Test @Order(1)
     final void testClear() throws InterruptedException{
         Thread.sleep(2500);
+        // cleared without a request
+        Assertions.assertFalse(handler.getEntry(testContent).isLoaded());
+        Assertions.assertFalse(handler.getEntry(testContent + '0').isLoaded());
         Assertions.assertEquals(testContent + '0', Requests.getBody("http://localhost:8080/file/" + testContent + '0'));
 
         Assertions.assertTrue(handler.toString().contains("expired=true"));
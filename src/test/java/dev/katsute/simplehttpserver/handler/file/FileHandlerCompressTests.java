@@ -0,0 +1,148 @@
+package dev.katsute.simplehttpserver.handler.file;
+
+import dev.katsute.simplehttpserver.Requests;
+import dev.katsute.simplehttpserver.SimpleHttpServer;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+final class FileHandlerCompressTests {
+
+    private static SimpleHttpServer server;
+
+    private static final String testContent = new String(new char[1000]).replace("\0", "content");
+    private static final String brotli = "brotli";
+
+    @TempDir
+    private static File dir = new File(String.valueOf(System.currentTimeMillis()));
+
+    private static final FileHandler handler = new FileHandler();
+
+    @BeforeAll
+    static void beforeAll() throws IOException{
+        server = SimpleHttpServer.create(8080);
+
+        final File file = new File(dir, "file.txt");
+        Files.write(file.toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(dir, "file.txt.br").toPath(), brotli.getBytes(StandardCharsets.UTF_8));
+
+        handler.addFile(file, new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.PRELOAD).setCompress(true).build());
+        handler.addFile(file, "live.txt", new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.LIVE).setCompress(true).build());
+
+        final File small = new File(dir, "small.txt");
+        Files.write(small.toPath(), "small".getBytes(StandardCharsets.UTF_8));
+        handler.addFile(small, new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.PRELOAD).setCompress(true).build());
+
+        final File modify = new File(dir, "modify.txt");
+        Files.write(modify.toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(dir, "modify.txt.br").toPath(), brotli.getBytes(StandardCharsets.UTF_8));
+        handler.addFile(modify, new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.MODIFY).setCompress(true).build());
+
+        final FileHandler adapted = new FileHandler(new FileAdapter(){
+            @Override
+            public final byte[] getBytes(final File file, final byte[] bytes){
+                return new String(bytes, StandardCharsets.UTF_8).toUpperCase().getBytes(StandardCharsets.UTF_8);
+            }
+        });
+        adapted.addFile(file, new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.PRELOAD).setCompress(true).build());
+
+        server.createContext("file", handler);
+        server.createContext("adapted", adapted);
+
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll(){
+        server.stop();
+    }
+
+    private static HttpURLConnection open(final String encoding) throws IOException{
+        return open("file.txt", encoding);
+    }
+
+    private static HttpURLConnection open(final String name, final String encoding) throws IOException{
+        final HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/file/" + name).openConnection();
+        conn.setConnectTimeout(5000);
+        conn.setReadTimeout(5000);
+        if(encoding != null)
+            conn.setRequestProperty("Accept-Encoding", encoding);
+        return conn;
+    }
+
+    @Test
+    final void testIdentity() throws IOException{
+        final HttpURLConnection conn = open(null);
+        Assertions.assertNull(conn.getContentEncoding());
+        Assertions.assertEquals("text/plain; charset=utf-8", conn.getContentType());
+        Assertions.assertEquals(testContent, Requests.getBody(conn));
+    }
+
+    @Test
+    final void testGzip() throws IOException{
+        final HttpURLConnection conn = open("gzip");
+        Assertions.assertEquals("gzip", conn.getContentEncoding());
+        Assertions.assertTrue(conn.getContentLengthLong() < testContent.length());
+        Assertions.assertEquals(testContent, Requests.getBody(conn));
+    }
+
+    @Test
+    final void testThreshold() throws IOException{
+        final HttpURLConnection conn = open("small.txt", "gzip");
+        Assertions.assertNull(conn.getContentEncoding());
+        Assertions.assertEquals("small", Requests.getBody(conn));
+    }
+
+    @Test
+    final void testLive() throws IOException{
+        final HttpURLConnection conn = open("live.txt", "gzip");
+        Assertions.assertEquals("gzip", conn.getContentEncoding());
+        Assertions.assertEquals(testContent, Requests.getBody(conn));
+
+        final FileEntry entry = handler.getEntry("live.txt");
+        Assertions.assertSame(entry.getContent(), entry.getContent()); // compressed content is kept until the file changes
+    }
+
+    @Test
+    final void testPrecompressed() throws IOException{
+        final HttpURLConnection conn = open("gzip, br");
+        Assertions.assertEquals("br", conn.getContentEncoding());
+        Assertions.assertEquals("text/plain; charset=utf-8", conn.getContentType());
+        Assertions.assertTrue(conn.getHeaderField("ETag").endsWith("-br\""));
+        Assertions.assertEquals(brotli, Requests.getBody(conn));
+    }
+
+    @Test
+    final void testAdapted() throws IOException{
+        final HttpURLConnection conn = Requests.openConn("http://localhost:8080/adapted/file.txt");
+        conn.setRequestProperty("Accept-Encoding", "gzip, br");
+        Assertions.assertEquals("gzip", conn.getContentEncoding(), "Expected precompressed file to not be used with a custom adapter");
+        Assertions.assertEquals(testContent.toUpperCase(), Requests.getBody(conn));
+    }
+
+    @Test
+    final void testPrecompressedChanged() throws IOException{
+        final String identity = open("modify.txt", null).getHeaderField("ETag");
+        final HttpURLConnection conn = open("modify.txt", "br");
+        Assertions.assertEquals(brotli, Requests.getBody(conn));
+        final String etag = conn.getHeaderField("ETag");
+
+        final File sibling = new File(dir, "modify.txt.br");
+        Files.write(sibling.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertTrue(sibling.setLastModified(sibling.lastModified() + 10 * 1000));
+
+        final HttpURLConnection changed = open("modify.txt", "br");
+        Assertions.assertEquals("changed", Requests.getBody(changed));
+        Assertions.assertNotEquals(etag, changed.getHeaderField("ETag"), "Expected a change to the precompressed file to change the tag");
+        final HttpURLConnection unchanged = open("modify.txt", null);
+        unchanged.setRequestProperty("If-None-Match", identity);
+        Assertions.assertEquals(304, unchanged.getResponseCode(), "Expected identity tag to be unchanged");
+    }
+
+}
@@ -69,7 +69,8 @@ final class FileHandlerDirTests {
     final void testInvalid(){
         final String[] invalidPathsToTest = {
             dir.getName() + '/' + subdir.getName(),
-            dir.getName() + '/' + subdir.getName() + '/' + testContent
+            dir.getName() + '/' + subdir.getName() + '/' + testContent,
+            "dirNameX"    + '/' + testContent
         };
 
         for(final String path : invalidPathsToTest)
@@ -83,6 +84,7 @@ final class FileHandlerDirTests {
         handler.removeDirectory("dirName");
         handler.removeDirectory("altn" + '/' + "dirName");
         Assertions.assertEquals(empty, handler.toString());
+        Assertions.assertNull(Requests.getBody("http://localhost:8080/" + "altn" + '/' + "dirName" + '/' + testContent, true));
     }
 
 }
\ No newline at end of file
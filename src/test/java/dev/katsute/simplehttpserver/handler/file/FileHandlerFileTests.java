@@ -61,6 +61,12 @@ final class FileHandlerFileTests {
             final String after = String.valueOf(System.currentTimeMillis());
             Assertions.assertDoesNotThrow(() -> Files.write(file.toPath(), after.getBytes()));
 
+            if(loadingOption == FileLoadingOption.WATCH) // change events are delivered asynchronously
+                Assertions.assertDoesNotThrow(() -> {
+                    for(int i = 0; i < 100 && !after.equals(Requests.getBody(url)); i++)
+                        Thread.sleep(50);
+                });
+
             Assertions.assertEquals( loadingOption == FileLoadingOption.PRELOAD ? testContent : after, Requests.getBody(url));
         });
 
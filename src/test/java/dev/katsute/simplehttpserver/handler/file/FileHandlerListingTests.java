@@ -0,0 +1,86 @@
+package dev.katsute.simplehttpserver.handler.file;
+
+import dev.katsute.simplehttpserver.Requests;
+import dev.katsute.simplehttpserver.SimpleHttpServer;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+final class FileHandlerListingTests {
+
+    private static SimpleHttpServer server;
+
+    private static final String testContent = String.valueOf(System.currentTimeMillis());
+
+    @TempDir
+    private static File dir = new File(testContent);
+
+    private static final FileHandler handler = new FileHandler();
+
+    @BeforeAll
+    static void beforeAll() throws IOException{
+        server = SimpleHttpServer.create(8080);
+
+        final File site = new File(dir, "site");
+        final File docs = new File(dir, "docs");
+        Assertions.assertTrue(site.mkdirs());
+        Assertions.assertTrue(docs.mkdirs());
+        Files.write(new File(site, "index.html").toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(docs, "a.txt").toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(docs, "b c.txt").toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+
+        handler.addDirectory(dir, "dir", new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.PRELOAD).setWalk(true).setIndex("index.html").setListing(true).build());
+        handler.addDirectory(dir, "none", new FileOptions.Builder().setWalk(true).build());
+
+        server.createContext("", handler);
+
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll(){
+        server.stop();
+    }
+
+    @Test
+    final void testIndex(){
+        Assertions.assertEquals(testContent, Requests.getBody("http://localhost:8080/dir/site"));
+        Assertions.assertEquals(testContent, Requests.getBody("http://localhost:8080/dir/site/"));
+        Assertions.assertEquals(404, Requests.getCode("http://localhost:8080/none/site"));
+    }
+
+    @Test
+    final void testListing() throws IOException, InterruptedException{
+        final String root = Requests.getBody("http://localhost:8080/dir");
+        Assertions.assertTrue(root.contains("href=\"/dir/docs/\""));
+        Assertions.assertTrue(root.contains("href=\"/dir/site/\""));
+        Assertions.assertFalse(root.contains("../"));
+
+        final String url = "http://localhost:8080/dir/docs";
+        final String html = Requests.getBody(url);
+        Assertions.assertTrue(html.contains("href=\"/dir/docs/a.txt\""));
+        Assertions.assertTrue(html.contains("href=\"/dir/docs/b%20c.txt\""));
+        Assertions.assertTrue(html.contains("../"));
+
+        final HttpURLConnection conn = Requests.openConn(url);
+        conn.setRequestProperty("Accept", "application/json");
+        Assertions.assertEquals("application/json", conn.getContentType());
+        Assertions.assertTrue(Requests.getBody(conn).contains("{\"name\":\"a.txt\",\"directory\":false,\"size\":" + testContent.length()));
+
+        Files.write(new File(dir, "docs/new.txt").toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+        boolean updated = false;
+        for(int i = 0; i < 100 && !updated; i++){
+            updated = Requests.getBody(url).contains("new.txt");
+            Thread.sleep(50);
+        }
+        Assertions.assertTrue(updated);
+
+        Assertions.assertEquals(404, Requests.getCode("http://localhost:8080/none/docs"));
+    }
+
+}
@@ -0,0 +1,167 @@
+package dev.katsute.simplehttpserver.handler.file;
+
+import dev.katsute.simplehttpserver.Requests;
+import dev.katsute.simplehttpserver.SimpleHttpServer;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+final class FileHandlerRangeTests {
+
+    private static SimpleHttpServer server;
+
+    private static final String testContent = "0123456789";
+
+    @TempDir
+    private static File dir = new File(testContent);
+
+    private static final FileHandler handler = new FileHandler();
+
+    private static final String url = "http://localhost:8080/file/" + testContent;
+
+    @BeforeAll
+    static void beforeAll() throws IOException{
+        server = SimpleHttpServer.create(8080);
+
+        final File file = new File(dir, testContent);
+        Files.write(file.toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+
+        handler.addFile(file, new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.PRELOAD).build());
+        handler.addFile(file, "offheap", new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.PRELOAD).setOffHeap(true).build());
+
+        final FileHandler adapted = new FileHandler(new FileAdapter() {
+            @Override
+            public final byte[] getBytes(final File file, final byte[] bytes){
+                return new StringBuilder(new String(bytes, StandardCharsets.UTF_8)).reverse().toString().getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public final String getName(final File file){
+                return file.getName();
+            }
+        });
+        adapted.addFile(file, new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.PRELOAD).setOffHeap(true).build());
+
+        final FileHandler empty = new FileHandler(new FileAdapter() {
+            @Override
+            public final byte[] getBytes(final File file, final byte[] bytes){
+                return null;
+            }
+
+            @Override
+            public final String getName(final File file){
+                return file.getName();
+            }
+        });
+        empty.addFile(file, new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.PRELOAD).build());
+
+        server.createContext("file", handler);
+        server.createContext("adapted", adapted);
+        server.createContext("empty", empty);
+
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll(){
+        server.stop();
+    }
+
+    @Test
+    final void testConditional() throws IOException{
+        final HttpURLConnection conn = Requests.openConn(url);
+        Assertions.assertEquals(200, conn.getResponseCode());
+        final String etag = conn.getHeaderField("ETag");
+        final String lastModified = conn.getHeaderField("Last-Modified");
+        Assertions.assertNotNull(etag);
+        Assertions.assertNotNull(lastModified);
+        Assertions.assertEquals(testContent, Requests.getBody(conn));
+
+        Assertions.assertEquals(304, Requests.openConn(url, "If-None-Match", etag).getResponseCode());
+        Assertions.assertEquals(304, Requests.openConn(url, "If-Modified-Since", lastModified).getResponseCode());
+        Assertions.assertEquals(200, Requests.openConn(url, "If-None-Match", "\"other\"").getResponseCode());
+    }
+
+    @Test
+    final void testRange() throws IOException{
+        {
+            final HttpURLConnection conn = Requests.openConn(url, "Range", "bytes=2-4");
+            Assertions.assertEquals(206, conn.getResponseCode());
+            Assertions.assertEquals("bytes 2-4/10", conn.getHeaderField("Content-Range"));
+            Assertions.assertEquals("234", Requests.getBody(conn));
+        }
+        {
+            final HttpURLConnection conn = Requests.openConn(url, "Range", "bytes=-3");
+            Assertions.assertEquals(206, conn.getResponseCode());
+            Assertions.assertEquals("789", Requests.getBody(conn));
+        }
+        {
+            final HttpURLConnection conn = Requests.openConn(url, "Range", "bytes=0-0,8-");
+            Assertions.assertEquals(206, conn.getResponseCode());
+            Assertions.assertTrue(conn.getContentType().startsWith("multipart/byteranges"));
+            final String body = Requests.getBody(conn);
+            Assertions.assertTrue(body.contains("Content-Range: bytes 0-0/10"));
+            Assertions.assertTrue(body.contains("Content-Range: bytes 8-9/10"));
+        }
+        Assertions.assertEquals(416, Requests.openConn(url, "Range", "bytes=20-").getResponseCode());
+    }
+
+    @Test
+    final void testOverlappingRanges() throws IOException{
+        {
+            final HttpURLConnection conn = Requests.openConn(url, "Range", "bytes=4-6,0-3,3-4");
+            Assertions.assertEquals(206, conn.getResponseCode());
+            Assertions.assertEquals("bytes 0-6/10", conn.getHeaderField("Content-Range"));
+            Assertions.assertEquals("0123456", Requests.getBody(conn));
+        }
+        {
+            final HttpURLConnection conn = Requests.openConn(url, "Range", "bytes=0-0,0-0,8-");
+            Assertions.assertEquals(206, conn.getResponseCode());
+            final String body = Requests.getBody(conn);
+            Assertions.assertEquals(1, body.split("Content-Range: bytes 0-0/10", -1).length - 1);
+        }
+        {
+            final HttpURLConnection conn = Requests.openConn(url, "Range", "bytes=0-,0-,0-");
+            Assertions.assertEquals(200, conn.getResponseCode());
+            Assertions.assertEquals(testContent, Requests.getBody(conn));
+        }
+        {
+            final HttpURLConnection conn = Requests.openConn(url, "Range", String.join(",", Collections.nCopies(20, "0-0")));
+            Assertions.assertEquals(200, conn.getResponseCode());
+            Assertions.assertEquals(testContent, Requests.getBody(conn));
+        }
+        Assertions.assertEquals(200, Requests.openConn(url, "Range", "invalid").getResponseCode());
+    }
+
+    @Test
+    final void testOffHeap() throws IOException{
+        final String url = "http://localhost:8080/file/offheap";
+        {
+            final HttpURLConnection conn = Requests.openConn(url);
+            Assertions.assertEquals(200, conn.getResponseCode());
+            Assertions.assertEquals(testContent, Requests.getBody(conn));
+            Assertions.assertEquals(304, Requests.openConn(url, "If-None-Match", conn.getHeaderField("ETag")).getResponseCode());
+        }
+        {
+            final HttpURLConnection conn = Requests.openConn(url, "Range", "bytes=2-4");
+            Assertions.assertEquals(206, conn.getResponseCode());
+            Assertions.assertEquals("234", Requests.getBody(conn));
+        }
+        Assertions.assertEquals(testContent.length(), handler.getEntry("offheap").getContent().size()); // charged to the cache
+        Assertions.assertEquals(new StringBuilder(testContent).reverse().toString(), Requests.getBody("http://localhost:8080/adapted/" + testContent));
+    }
+
+    @Test
+    final void testEmpty() throws IOException{
+        final HttpURLConnection conn = Requests.openConn("http://localhost:8080/empty/" + testContent);
+        Assertions.assertEquals(200, conn.getResponseCode());
+        Assertions.assertEquals("", Requests.getBody(conn));
+    }
+
+}
@@ -0,0 +1,72 @@
+package dev.katsute.simplehttpserver.handler.file;
+
+import dev.katsute.simplehttpserver.Requests;
+import dev.katsute.simplehttpserver.SimpleHttpServer;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+final class FileHandlerRefreshTests {
+
+    private static SimpleHttpServer server;
+
+    private static final String testContent = String.valueOf(System.currentTimeMillis());
+
+    @TempDir
+    private static File dir = new File(testContent);
+    private static File file;
+
+    private static volatile String loadedBy; // thread that last read the file
+
+    private static final FileHandler handler = new FileHandler(new FileAdapter(){
+        @Override
+        public final byte[] getBytes(final File file, final byte[] bytes){
+            loadedBy = Thread.currentThread().getName();
+            return bytes;
+        }
+    });
+
+    @BeforeAll
+    static void beforeAll() throws IOException{
+        server = SimpleHttpServer.create(8080);
+
+        file = new File(dir, testContent);
+        Files.write(file.toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+
+        handler.addFile(file, new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.CACHE).setCache(5000).setRefresh(4500).build());
+
+        server.createContext("file", handler);
+
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll(){
+        server.stop();
+    }
+
+    @Test
+    final void testRefresh() throws IOException, InterruptedException{
+        final String url = "http://localhost:8080/file/" + testContent;
+        Assertions.assertEquals(testContent, Requests.getBody(url));
+
+        final String after = testContent + "after";
+        Files.write(file.toPath(), after.getBytes(StandardCharsets.UTF_8));
+        Thread.sleep(1000);
+
+        Assertions.assertEquals(testContent, Requests.getBody(url)); // served cached while refreshing
+
+        String body = null;
+        for(int i = 0; i < 40 && !after.equals(body); i++){
+            Thread.sleep(50);
+            body = Requests.getBody(url);
+        }
+        Assertions.assertEquals(after, body);
+        Assertions.assertTrue(loadedBy.startsWith("simplehttpserver-file-loader"), "Expected refresh to read on the loader pool, was " + loadedBy);
+    }
+
+}
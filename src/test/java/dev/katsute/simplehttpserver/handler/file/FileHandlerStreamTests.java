@@ -0,0 +1,115 @@
+package dev.katsute.simplehttpserver.handler.file;
+
+import dev.katsute.simplehttpserver.Requests;
+import dev.katsute.simplehttpserver.SimpleHttpServer;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+final class FileHandlerStreamTests {
+
+    private static SimpleHttpServer server;
+
+    private static final String testContent = "content";
+
+    @TempDir
+    private static File dir = new File(testContent);
+
+    private static final class UpperCaseAdapter implements StreamingFileAdapter {
+
+        private final boolean cacheable;
+
+        private UpperCaseAdapter(final boolean cacheable){
+            this.cacheable = cacheable;
+        }
+
+        @Override
+        public final void transform(final File file, final InputStream IN, final OutputStream OUT) throws IOException{
+            int b;
+            while((b = IN.read()) != -1)
+                OUT.write(Character.toUpperCase(b));
+        }
+
+        @Override
+        public final boolean isCacheable(){
+            return cacheable;
+        }
+
+    }
+
+    @BeforeAll
+    static void beforeAll() throws IOException{
+        server = SimpleHttpServer.create(8080);
+
+        final File file = new File(dir, testContent);
+        Files.write(file.toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+
+        final FileHandler stream = new FileHandler(new UpperCaseAdapter(false));
+        stream.addFile(file, new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.PRELOAD).build());
+        stream.addDirectory(dir, "dir");
+        server.createContext("stream", stream);
+
+        final FileHandler cache = new FileHandler(new UpperCaseAdapter(true));
+        cache.addFile(file, new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.PRELOAD).build());
+        server.createContext("cache", cache);
+
+        final File compress = new File(dir, "compress");
+        Assertions.assertTrue(compress.mkdir());
+        final byte[] large = new String(new char[2048]).replace('\0', 'a').getBytes(StandardCharsets.UTF_8);
+        Files.write(new File(compress, "large.txt").toPath(), large);
+        Files.write(new File(compress, "large.png").toPath(), large);
+        Files.write(new File(compress, "small.txt").toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+
+        final FileHandler gzip = new FileHandler(new UpperCaseAdapter(false));
+        gzip.addDirectory(compress, new FileOptions.Builder().setCompress(true).build());
+        server.createContext("gzip", gzip);
+
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll(){
+        server.stop();
+    }
+
+    @Test
+    final void testStream() throws IOException{
+        final String url = "http://localhost:8080/stream/" + testContent;
+        final HttpURLConnection conn = Requests.openConn(url);
+        Assertions.assertEquals(testContent.toUpperCase(), Requests.getBody(conn));
+
+        final String etag = conn.getHeaderField("ETag");
+        Assertions.assertTrue(etag.startsWith("W/"));
+        final HttpURLConnection conditional = Requests.openConn(url);
+        conditional.setRequestProperty("If-None-Match", etag);
+        Assertions.assertEquals(304, conditional.getResponseCode());
+
+        Assertions.assertEquals(testContent.toUpperCase(), Requests.getBody("http://localhost:8080/stream/dir/" + testContent));
+        Assertions.assertEquals(404, Requests.getCode("http://localhost:8080/stream/dir/missing"));
+    }
+
+    @Test
+    final void testCompress(){
+        Assertions.assertEquals("gzip", open("http://localhost:8080/gzip/compress/large.txt").getContentEncoding());
+        Assertions.assertNull(open("http://localhost:8080/gzip/compress/large.png").getContentEncoding(), "Expected already compressed type to not be compressed");
+        Assertions.assertNull(open("http://localhost:8080/gzip/compress/small.txt").getContentEncoding(), "Expected file under threshold to not be compressed");
+    }
+
+    private static HttpURLConnection open(final String url){
+        final HttpURLConnection conn = Requests.openConn(url);
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        return conn;
+    }
+
+    @Test
+    final void testCacheable() throws IOException{
+        final HttpURLConnection conn = Requests.openConn("http://localhost:8080/cache/" + testContent);
+        Assertions.assertEquals(testContent.toUpperCase(), Requests.getBody(conn));
+        Assertions.assertFalse(conn.getHeaderField("ETag").startsWith("W/"));
+    }
+
+}
@@ -0,0 +1,112 @@
+package dev.katsute.simplehttpserver.handler.file;
+
+import dev.katsute.simplehttpserver.Requests;
+import dev.katsute.simplehttpserver.SimpleHttpServer;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Objects;
+
+final class FileHandlerWatchTests {
+
+    private static SimpleHttpServer server;
+
+    private static final String testContent = String.valueOf(System.currentTimeMillis());
+
+    @TempDir
+    private static File dir = new File(testContent);
+
+    private static final FileHandler handler = new FileHandler();
+
+    private static File file, watchdir, indexdir;
+
+    @BeforeAll
+    static void beforeAll() throws IOException{
+        server = SimpleHttpServer.create(8080);
+
+        handler.addDirectory(dir, "live", new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.LIVE).setWalk(true).build());
+
+        watchdir = new File(dir, "watch");
+        Assertions.assertTrue(watchdir.mkdirs());
+        file = new File(watchdir, testContent + ".txt");
+        Files.write(file.toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+
+        final FileOptions watch = new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.WATCH).build();
+        handler.addFile(file, watch);
+        handler.addDirectory(watchdir, watch);
+
+        indexdir = new File(dir, "index");
+        Assertions.assertTrue(indexdir.mkdirs());
+        handler.addDirectory(indexdir, new FileOptions.Builder().setLoadingOption(FileOptions.FileLoadingOption.WATCH).setWalk(true).build());
+
+        server.createContext("", handler);
+
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll(){
+        server.stop();
+    }
+
+    // watch events are delivered asynchronously
+    private static boolean await(final String url, final String expected) throws InterruptedException{
+        for(int i = 0; i < 100; i++){
+            if(Objects.equals(expected, Requests.getBody(url, true)))
+                return true;
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    @Test
+    final void testLive() throws IOException{
+        final String url = "http://localhost:8080/live/ld/" + testContent.toUpperCase() + ".txt";
+        Assertions.assertNull(Requests.getBody(url, true));
+
+        final File subdir = new File(dir, "ld");
+        Assertions.assertTrue(subdir.mkdirs());
+        final File file = new File(subdir, testContent + ".txt");
+        Files.write(file.toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+        Assertions.assertEquals(testContent, Requests.getBody(url, true), "Expected LIVE to find new files without waiting for the watch service");
+
+        Assertions.assertTrue(file.delete());
+        Assertions.assertNull(Requests.getBody(url, true));
+    }
+
+    @Test
+    final void testIndex() throws IOException, InterruptedException{
+        final String url = "http://localhost:8080/index/sd/" + testContent.toUpperCase() + ".txt";
+        Assertions.assertNull(Requests.getBody(url, true));
+
+        final File subdir = new File(indexdir, "sd");
+        Assertions.assertTrue(subdir.mkdirs());
+        final File file = new File(subdir, testContent + ".txt");
+        Files.write(file.toPath(), testContent.getBytes(StandardCharsets.UTF_8));
+        Assertions.assertTrue(await(url, testContent));
+
+        Assertions.assertTrue(file.delete());
+        Assertions.assertTrue(await(url, null));
+    }
+
+    @Test
+    final void testWatch() throws IOException, InterruptedException{
+        final String single = "http://localhost:8080/" + file.getName();
+        final String inDir  = "http://localhost:8080/" + watchdir.getName() + '/' + file.getName();
+        Assertions.assertEquals(testContent, Requests.getBody(single));
+        Assertions.assertEquals(testContent, Requests.getBody(inDir));
+
+        final String after = testContent + "after";
+        Files.write(file.toPath(), after.getBytes(StandardCharsets.UTF_8));
+        Assertions.assertTrue(await(single, after));
+        Assertions.assertTrue(await(inDir, after));
+
+        Assertions.assertTrue(file.delete());
+        Assertions.assertTrue(await(inDir, null));
+    }
+
+}
@@ -0,0 +1,183 @@
+package dev.katsute.simplehttpserver.server;
+
+import dev.katsute.simplehttpserver.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+
+final class ServerExecutorTests {
+
+    @Test
+    final void testExecutor() throws IOException, InterruptedException, ExecutionException{
+        final SimpleHttpServer server = SimpleHttpServer.create(8080, 0, new ExecutorOptions.Builder().setVirtual(false).setThreads(4).setQueue(4).build());
+        final ServerExecutor executor = (ServerExecutor) server.getExecutor();
+        Assertions.assertFalse(executor.isVirtual());
+
+        final CountDownLatch latch = new CountDownLatch(4);
+        server.createContext("", (SimpleHttpHandler) exchange -> {
+            latch.countDown();
+            try{ // only completes if all requests run in parallel
+                exchange.send(String.valueOf(latch.await(5, TimeUnit.SECONDS)));
+            }catch(final InterruptedException e){
+                exchange.send(500);
+            }
+        });
+        server.start();
+
+        final ExecutorService clients = Executors.newFixedThreadPool(4);
+        try{
+            final List<Future<String>> responses = new ArrayList<>();
+            for(int i = 0; i < 4; i++)
+                responses.add(clients.submit(() -> Requests.getBody("http://localhost:8080")));
+            for(final Future<String> response : responses)
+                Assertions.assertEquals("true", response.get());
+        }finally{
+            clients.shutdown();
+            server.stop();
+        }
+
+        Assertions.assertTrue(await(() -> executor.getCompletedCount() == 4));
+        Assertions.assertEquals(0, executor.getActiveCount());
+    }
+
+    @Test
+    final void testVirtual() throws IOException, InterruptedException{
+        final SimpleHttpServer server = SimpleHttpServer.create(8080, 0, new ExecutorOptions());
+        try{
+            server.createContext("", (SimpleHttpHandler) exchange -> exchange.send("ok"));
+            server.start();
+            Assertions.assertEquals("ok", Requests.getBody("http://localhost:8080"));
+        }finally{
+            server.stop();
+        }
+        Assertions.assertTrue(await(() -> ((ServerExecutor) server.getExecutor()).getCompletedCount() == 1));
+    }
+
+    @ParameterizedTest(name = "virtual: {0}")
+    @ValueSource(booleans = {true, false}) // virtual is the default
+    final void testShed(final boolean virtual) throws IOException, InterruptedException, ExecutionException{
+        final SimpleHttpServer server = SimpleHttpServer.create(8080, 0, new ExecutorOptions.Builder().setVirtual(virtual).setThreads(1).setQueue(1).setShed(true).setRetryAfter(5).build());
+        final ServerExecutor executor = (ServerExecutor) server.getExecutor();
+        final CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        server.createContext("", (SimpleHttpHandler) exchange -> {
+            started.countDown();
+            try{
+                release.await(5, TimeUnit.SECONDS);
+            }catch(final InterruptedException ignored){ }
+            exchange.send("ok");
+        });
+        server.start();
+
+        final ExecutorService clients = Executors.newFixedThreadPool(2);
+        try{
+            final Future<Integer> active = clients.submit(() -> Requests.getCode("http://localhost:8080"));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            final Future<Integer> queued = clients.submit(() -> Requests.getCode("http://localhost:8080"));
+            Assertions.assertTrue(await(() -> executor.getQueuedCount() == 1));
+
+            final HttpURLConnection conn = Requests.openConn("http://localhost:8080");
+            Assertions.assertEquals(503, conn.getResponseCode());
+            Assertions.assertEquals("5", conn.getHeaderField("Retry-After"));
+
+            release.countDown();
+            Assertions.assertEquals(200, active.get());
+            Assertions.assertEquals(200, queued.get());
+        }finally{
+            clients.shutdown();
+            server.stop();
+        }
+        Assertions.assertEquals(1, executor.getRejectedCount());
+    }
+
+    @ParameterizedTest(name = "virtual: {0}")
+    @ValueSource(booleans = {true, false})
+    final void testDeadline(final boolean virtual) throws IOException, InterruptedException, ExecutionException{
+        final SimpleHttpServer server = SimpleHttpServer.create(8080, 0, new ExecutorOptions.Builder().setVirtual(virtual).setThreads(1).setDeadline(100).build());
+        final ServerExecutor executor = (ServerExecutor) server.getExecutor();
+        final CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        server.createContext("", (SimpleHttpHandler) exchange -> {
+            started.countDown();
+            try{
+                release.await(5, TimeUnit.SECONDS);
+            }catch(final InterruptedException ignored){ }
+            exchange.send("ok");
+        });
+        server.start();
+
+        final ExecutorService clients = Executors.newFixedThreadPool(2);
+        try{
+            final Future<Integer> active = clients.submit(() -> Requests.getCode("http://localhost:8080"));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            final Future<Integer> queued = clients.submit(() -> Requests.getCode("http://localhost:8080"));
+            Assertions.assertTrue(await(() -> executor.getQueuedCount() == 1));
+            Thread.sleep(300);
+
+            release.countDown();
+            Assertions.assertEquals(200, active.get());
+            Assertions.assertEquals(503, queued.get());
+        }finally{
+            clients.shutdown();
+            server.stop();
+        }
+        Assertions.assertEquals(1, executor.getRejectedCount());
+    }
+
+    @ParameterizedTest(name = "virtual: {0}")
+    @ValueSource(booleans = {true, false})
+    final void testWait(final boolean virtual) throws IOException, InterruptedException, ExecutionException{
+        final SimpleHttpServer server = SimpleHttpServer.create(8080, 0, new ExecutorOptions.Builder().setVirtual(virtual).setThreads(1).setQueue(1).build());
+        final ServerExecutor executor = (ServerExecutor) server.getExecutor();
+        final CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        final List<String> threads = new CopyOnWriteArrayList<>();
+        server.createContext("", (SimpleHttpHandler) exchange -> {
+            threads.add(Thread.currentThread().getName());
+            started.countDown();
+            try{
+                release.await(5, TimeUnit.SECONDS);
+            }catch(final InterruptedException ignored){ }
+            exchange.send("ok");
+        });
+        server.start();
+
+        final ExecutorService clients = Executors.newFixedThreadPool(3);
+        try{
+            final Future<Integer> active = clients.submit(() -> Requests.getCode("http://localhost:8080"));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            final Future<Integer> queued = clients.submit(() -> Requests.getCode("http://localhost:8080"));
+            Assertions.assertTrue(await(() -> executor.getQueuedCount() == 1));
+            final Future<Integer> waiting = clients.submit(() -> Requests.getCode("http://localhost:8080"));
+            Assertions.assertTrue(await(() -> executor.getOverflowCount() == 1));
+            Thread.sleep(200);
+            Assertions.assertEquals(1, threads.size(), "Expected overflow to wait instead of being handled on the server thread");
+
+            release.countDown();
+            Assertions.assertEquals(200, active.get());
+            Assertions.assertEquals(200, queued.get());
+            Assertions.assertEquals(200, waiting.get());
+        }finally{
+            clients.shutdown();
+            server.stop();
+        }
+        Assertions.assertEquals(0, executor.getRejectedCount());
+        for(final String thread : threads)
+            Assertions.assertFalse(thread.startsWith("HTTP-Dispatcher"));
+    }
+
+    // handler finishes after the response is sent
+    private static boolean await(final BooleanSupplier condition) throws InterruptedException{
+        for(int i = 0; i < 100; i++){
+            if(condition.getAsBoolean())
+                return true;
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+}